@@ -15,6 +15,99 @@ public final class Constants {
      */
     public static final String MODEL_FIELD_SEPARATOR = "--";
 
+    /**
+     * Default values of the connection related configuration properties, see {@link OdooConfiguration}. Timeouts are in
+     * milliseconds, zero means no timeout.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+    public static final int DEFAULT_CONNECTION_IDLE_TIMEOUT = 60000;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
+    public static final int DEFAULT_READ_TIMEOUT = 0;
+    public static final int DEFAULT_RETRY_ATTEMPTS = 2;
+    public static final int DEFAULT_RETRY_BACKOFF = 500;
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+    public static final int DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 30000;
+    public static final int DEFAULT_BULK_REQUEST_SHARE = 75;
+    public static final int DEFAULT_HEALTH_CHECK_INTERVAL = 10000;
+    public static final int DEFAULT_HEDGING_MAX_SHARE = 10;
+
+    /**
+     * Maximum number of records read by one call combining concurrent reads, see
+     * {@link OdooConfiguration#getReadBatchWindow()}.
+     */
+    public static final int MAX_READ_BATCH_SIZE = 200;
+
+    /**
+     * Upper limit of the delay in milliseconds before retrying a failed API call. If odoo asks to retry later than that
+     * (header "Retry-After"), the call is not retried at all.
+     */
+    public static final int MAX_RETRY_DELAY = 30000;
+
+    /**
+     * Time in milliseconds a health check of an odoo node may take before the node is considered unavailable, see
+     * {@link OdooConfiguration#getHealthCheckInterval()}.
+     */
+    public static final int HEALTH_CHECK_TIMEOUT = 5000;
+
+    /**
+     * Time in milliseconds a successful liveness check of pooled connectors is valid, see
+     * {@link OdooClient#checkAlive()}.
+     */
+    public static final int ALIVE_CHECK_INTERVAL = 10000;
+
+    /**
+     * Time in milliseconds each odoo node may take to answer a liveness check of a pooled connector.
+     */
+    public static final int ALIVE_CHECK_TIMEOUT = 5000;
+
+    /**
+     * Maximum number of bytes of a request or response body written to the log, see
+     * {@link OdooConfiguration#getMessageLogSampling()}.
+     */
+    public static final int MESSAGE_LOG_MAX_SIZE = 4096;
+
+    /**
+     * Supported values of {@link OdooConfiguration#getProtocol()}.
+     */
+    public static final String PROTOCOL_XMLRPC = "xmlrpc";
+    public static final String PROTOCOL_JSONRPC = "jsonrpc";
+
+    /**
+     * Supported values of {@link OdooConfiguration#getHttpClient()}.
+     */
+    public static final String HTTP_CLIENT_APACHE = "apache";
+    public static final String HTTP_CLIENT_JDK = "jdk";
+
+    /**
+     * Supported values of {@link OdooConfiguration#getLoadBalancing()}.
+     */
+    public static final String LOAD_BALANCING_ROUND_ROBIN = "round-robin";
+    public static final String LOAD_BALANCING_LEAST_REQUESTS = "least-requests";
+
+    /**
+     * Maximum number of records received from odoo waiting to be handled during a search, see
+     * {@link lu.lns.connector.odoo.transport.BoundedResultQueue}.
+     */
+    public static final int SEARCH_QUEUE_CAPACITY = 100;
+
+    /**
+     * Operation options restricting a search to a slice of the model, e.g. to reconcile a large model in buckets on
+     * several midpoint nodes. The ids of the slice range from {@link #OPTION_ID_FROM} (included) to {@link #OPTION_ID_TO}
+     * (excluded), either may be omitted. Alternatively {@link #OPTION_BUCKET} like "2/8" selects the second of eight
+     * slices with about the same number of records. The boundaries of the buckets are determined once for all of them,
+     * see {@link OdooBucketBoundaries}, and the id range of a bucket is kept in the paged results cookie for the
+     * following pages.
+     */
+    public static final String OPTION_ID_FROM = "odooIdFrom";
+    public static final String OPTION_ID_TO = "odooIdTo";
+    public static final String OPTION_BUCKET = "odooBucket";
+
+    /**
+     * Time in milliseconds the boundaries of the buckets of a model are kept after a bucket was last searched, see
+     * {@link OdooBucketBoundaries}.
+     */
+    public static final int BUCKET_BOUNDARIES_IDLE_TIME = 30 * 60 * 1000;
+
     private Constants() {
         // no instancing
     }
@@ -0,0 +1,159 @@
+package lu.lns.connector.odoo;
+
+import lu.lns.connector.odoo.transport.Deadline;
+import lu.lns.connector.odoo.transport.RequestPriority;
+import lu.lns.connector.odoo.transport.Scope;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second request for an API call only reading data if the first one has not been answered within the latency
+ * of {@link OdooConfiguration#getHedgingPercentile()} percent of the recent calls of the same operation on the same
+ * model, and takes the first answer ("hedged requests"). This cuts the latency of calls hitting a slow odoo worker at
+ * the cost of a few more requests. The request answered later is aborted. The hedges are limited to
+ * {@link OdooConfiguration#getHedgingMaxShare()} percent of the calls: each call earns a share of a token, each hedge
+ * costs one. If several odoo nodes are configured, the hedge is sent to another node by the load balancer as the first
+ * request is still outstanding. Calls are not hedged before enough latencies have been measured.
+ * <p>
+ * Only asynchronous calls are hedged, so that waiting for the first answer does not block a thread. The deadline and
+ * the priority of the connector operation are passed to the second request. This class is thread-safe.
+ */
+class HedgingPolicy {
+
+    // number of recent latencies the hedging delay is derived from
+    private static final int WINDOW = 1000;
+
+    // hedging starts after this many calls, the delay is updated after this many calls
+    private static final int MIN_SAMPLES = 20;
+
+    // hedges possible in a burst after a period of fast calls
+    private static final double MAX_TOKENS = 10;
+
+    private final int percentile;
+    private final double share;
+    private final OdooMetrics metrics;
+
+    // by model and operation, e.g. searching a large model takes longer than reading a user by id
+    private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+
+    private double tokens;
+
+    HedgingPolicy(OdooConfiguration configuration, OdooMetrics metrics) {
+        this.percentile = configuration.getHedgingPercentile();
+        this.share = configuration.getHedgingMaxShare() / 100.0;
+        this.metrics = metrics;
+    }
+
+    boolean isEnabled() {
+        return percentile > 0;
+    }
+
+    /**
+     * Executes the call, and a second time if it takes longer than the hedging delay of the operation.
+     *
+     * @param call sends a request without blocking and returns its result
+     * @return the first successful result, or the failure of the last request if all of them failed
+     */
+    <T> CompletableFuture<T> execute(String model, String operation, Supplier<CompletableFuture<T>> call) {
+        Latencies recent = latencies.computeIfAbsent(model + " " + operation, key -> new Latencies());
+        Deadline deadline = Deadline.current();
+        RequestPriority priority = RequestPriority.current();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        run(call, deadline, recent, result, pending, false);
+
+        long hedgeDelay = onCall(recent);
+        if (hedgeDelay >= 0) {
+            CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!result.isDone() && acquireToken()) {
+                    metrics.getHedges().increment();
+                    pending.incrementAndGet();
+                    try (Scope scope = RequestPriority.activate(priority)) {
+                        run(call, deadline, recent, result, pending, true);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    private <T> void run(Supplier<CompletableFuture<T>> call, Deadline deadline, Latencies recent, CompletableFuture<T> result,
+            AtomicInteger pending, boolean hedge) {
+
+        // cancelled as soon as there is a result, which aborts the request if it is still running
+        Deadline requestDeadline = Deadline.cancellable(deadline);
+        result.whenComplete((value, e) -> requestDeadline.cancel());
+
+        long start = System.nanoTime();
+        CompletableFuture<T> request;
+        try (Scope scope = Deadline.activate(requestDeadline)) {
+            request = call.get();
+        }
+        request.whenComplete((value, e) -> {
+            if (e == null) {
+                recent.add(System.nanoTime() - start, percentile);
+                if (result.complete(value) && hedge) {
+                    metrics.getHedgesWon().increment();
+                }
+            }
+            else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+        });
+    }
+
+    /**
+     * @return delay in milliseconds after which the call is hedged, -1 if not known yet
+     */
+    private long onCall(Latencies recent) {
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + share);
+        }
+        return recent.getDelay();
+    }
+
+    private synchronized boolean acquireToken() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Recent latencies of one operation on one model.
+     */
+    private static class Latencies {
+
+        private final long[] values = new long[WINDOW];
+
+        private int samples;
+        private long delay = -1;
+
+        synchronized long getDelay() {
+            return delay;
+        }
+
+        synchronized void add(long latencyNanos, int percentile) {
+            values[samples % WINDOW] = latencyNanos;
+            samples++;
+
+            if (samples % MIN_SAMPLES == 0) {
+                long[] sorted = Arrays.copyOf(values, Math.min(samples, WINDOW));
+                Arrays.sort(sorted);
+                long latency = sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+                delay = Math.max(1, TimeUnit.NANOSECONDS.toMillis(latency));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package lu.lns.connector.odoo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Boundaries splitting the records of a model into buckets, see {@link Constants#OPTION_BUCKET}. They are determined
+ * once for all buckets of a model and shared by the searches of all clients of the same odoo user, so buckets searched
+ * at different times neither overlap nor leave gaps although records are created or deleted meanwhile. Records created
+ * later have higher ids and fall into the last bucket, which is open at its end. The boundaries are determined again
+ * for searches starting after no bucket of the model was searched for {@link Constants#BUCKET_BOUNDARIES_IDLE_TIME},
+ * e.g. for the next reconciliation.
+ * <p>
+ * Connectors running in different processes determine their own boundaries. If they search the buckets of the same
+ * model at the same time while records are created, they should restrict their searches to fixed id ranges by
+ * {@link Constants#OPTION_ID_FROM} and {@link Constants#OPTION_ID_TO} instead.
+ */
+final class OdooBucketBoundaries {
+
+    // by odoo URL, database and user name
+    private static final Map<String, OdooBucketBoundaries> SESSIONS = new ConcurrentHashMap<>();
+
+    // by model and number of buckets, guarded by itself
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private OdooBucketBoundaries() {
+    }
+
+    static OdooBucketBoundaries forSession(String sessionKey) {
+        return SESSIONS.computeIfAbsent(sessionKey, k -> new OdooBucketBoundaries());
+    }
+
+    /**
+     * @param lookup determines the count - 1 boundaries if they are not known yet or expired; called by one thread, the
+     *               others searching buckets of the model meanwhile wait for its result
+     * @return the lowest ids of the second to the last bucket
+     */
+    int[] get(String model, int count, Supplier<int[]> lookup) {
+        Entry entry;
+        synchronized (entries) {
+            String key = model + "|" + count;
+            long now = System.currentTimeMillis();
+            entry = entries.get(key);
+            if (entry == null || now - entry.lastUse > Constants.BUCKET_BOUNDARIES_IDLE_TIME) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+            entry.lastUse = now;
+        }
+
+        synchronized (entry) {
+            // left unset if the lookup fails, so the next search tries again
+            if (entry.boundaries == null) {
+                entry.boundaries = lookup.get();
+            }
+            return entry.boundaries;
+        }
+    }
+
+    /**
+     * Keeps the boundaries while the pages of a bucket are read, as the searches of other buckets may start meanwhile.
+     */
+    void touch(String model, int count) {
+        synchronized (entries) {
+            Entry entry = entries.get(model + "|" + count);
+            if (entry != null) {
+                entry.lastUse = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private long lastUse;
+        private int[] boundaries;
+
+    }
+
+}
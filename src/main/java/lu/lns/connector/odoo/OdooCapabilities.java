@@ -0,0 +1,91 @@
+package lu.lns.connector.odoo;
+
+import org.identityconnectors.common.logging.Log;
+
+import java.util.Map;
+
+/**
+ * API features of an odoo server beyond those available in all supported versions, derived from the result of the
+ * "version" method. Determined once per odoo URL, see {@link OdooClient#getCapabilities()}, and used to choose the
+ * cheapest calls for an operation. A feature failing on the server nevertheless is disabled for all clients, the
+ * operation falls back to the calls available in all versions then.
+ */
+public class OdooCapabilities {
+
+    private static final Log LOG = Log.getLog(OdooCapabilities.class);
+
+    // "web_search_read" with a specification reading related records nested into the records
+    private static final int NESTED_READ_MIN_VERSION = 17;
+
+    /**
+     * Capabilities of a server whose version could not be determined, only features available in all versions.
+     */
+    static final OdooCapabilities UNKNOWN = new OdooCapabilities("unknown", 0);
+
+    private final String serverVersion;
+    private final int majorVersion;
+    private volatile boolean nestedRead;
+
+    OdooCapabilities(String serverVersion, int majorVersion) {
+        this.serverVersion = serverVersion;
+        this.majorVersion = majorVersion;
+        this.nestedRead = majorVersion >= NESTED_READ_MIN_VERSION;
+    }
+
+    /**
+     * @param version result of the "version" method of the common service
+     */
+    static OdooCapabilities of(Map<?, ?> version) {
+        Object serverVersion = version.get("server_version");
+        Object versionInfo = version.get("server_version_info");
+        Object major = null;
+        if (versionInfo instanceof Object[] && ((Object[]) versionInfo).length > 0) {
+            major = ((Object[]) versionInfo)[0];
+        }
+        else if (versionInfo instanceof int[] && ((int[]) versionInfo).length > 0) {
+            major = ((int[]) versionInfo)[0];
+        }
+
+        int majorVersion = 0;
+        if (major instanceof Integer) {
+            majorVersion = (Integer) major;
+        }
+        else if (major instanceof String) {
+            // odoo online versions, e.g. "saas~17"
+            String digits = ((String) major).replaceAll("\\D", "");
+            majorVersion = digits.isEmpty() ? 0 : Integer.parseInt(digits);
+        }
+        return new OdooCapabilities(String.valueOf(serverVersion), majorVersion);
+    }
+
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    /**
+     * @return whether "web_search_read" accepts a specification to read many2one related records nested into the records
+     */
+    public boolean isNestedReadSupported() {
+        return nestedRead;
+    }
+
+    /**
+     * Disables nested reads after they failed, e.g. because the method is restricted on this server.
+     */
+    public void disableNestedRead(Exception cause) {
+        if (nestedRead) {
+            nestedRead = false;
+            LOG.warn(cause, "Nested reads failed on odoo {0}, using separate calls for related records", serverVersion);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "odoo " + serverVersion + " (nested reads " + nestedRead + ")";
+    }
+
+}
@@ -1,95 +1,364 @@
 package lu.lns.connector.odoo;
 
 import com.evolveum.polygon.common.GuardedStringAccessor;
+import lu.lns.connector.odoo.transport.BoundedResultQueue;
+import lu.lns.connector.odoo.transport.Credentials;
+import lu.lns.connector.odoo.transport.Deadline;
+import lu.lns.connector.odoo.transport.ExecuteArguments;
+import lu.lns.connector.odoo.transport.JsonRpcProtocol;
+import lu.lns.connector.odoo.transport.OdooHttpClient;
+import lu.lns.connector.odoo.transport.OdooProtocol;
+import lu.lns.connector.odoo.transport.RequestPriority;
+import lu.lns.connector.odoo.transport.Scope;
+import lu.lns.connector.odoo.transport.XmlRpcProtocol;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.xmlrpc.XmlRpcException;
-import org.apache.xmlrpc.client.XmlRpcClient;
-import org.apache.xmlrpc.client.XmlRpcClientConfig;
-import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
-import org.identityconnectors.framework.common.exceptions.ConfigurationException;
+import org.apache.xmlrpc.client.XmlRpcHttpTransportException;
+import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectionFailedException;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+import org.identityconnectors.framework.common.exceptions.OperationTimeoutException;
 
 import java.io.IOException;
 import java.net.ConnectException;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Encapsulates the XML-RPC client to communicate with odoo. Also handles authentication to the API automatically.
+ * Encapsulates the client to communicate with odoo via XML-RPC or JSON-RPC, see {@link OdooConfiguration#getProtocol()}.
+ * Also handles authentication to the API automatically: the uid of the user is shared by all clients and resolved again
+ * if odoo denies access. Connections to odoo are pooled, see {@link OdooHttpClient}.
+ * Call {@link #close()} when the client is not used anymore.
+ * <p>
+ * Calls only reading data are repeated after transient failures, see {@link RetryPolicy}. All calls made for one connector
+ * operation share the time budget of {@link OdooConfiguration#getOperationTimeout()}, see {@link Deadline}, and are sent
+ * with the {@link RequestPriority} of the operation.
+ * <p>
+ * If {@link OdooConfiguration#getReadUrl()} is set, calls only reading data in bulk operations are sent to the read
+ * replica, all other calls to the primary odoo. Reads failing on the replica are repeated on the primary. Reads taking
+ * unusually long are sent a second time if enabled, see {@link HedgingPolicy}.
  */
 public class OdooClient {
 
-    private OdooConfiguration configuration;
-    private XmlRpcClient client;
-    private Integer authenticationToken;
+    private static final Log LOG = Log.getLog(OdooClient.class);
+
+    // operations without side effects which can safely be repeated
+    private static final Set<String> IDEMPOTENT_OPERATIONS = Set.of(OdooConstants.OPERATION_SEARCH,
+            OdooConstants.OPERATION_SEARCH_COUNT, OdooConstants.OPERATION_SEARCH_READ, OdooConstants.OPERATION_READ, OdooConstants.OPERATION_WEB_SEARCH_READ);
+
+    // uids of the users authenticated by all clients, by odoo URL, database and user name
+    private static final Map<String, Integer> SESSIONS = new ConcurrentHashMap<>();
+
+    // API features of the odoo servers, by odoo URL
+    private static final Map<String, OdooCapabilities> CAPABILITIES = new ConcurrentHashMap<>();
 
-    private XmlRpcClientConfig xmlRpcClientConfigCommon;
+    // time of the last successful liveness check by all clients, in nanoseconds, by odoo URLs
+    private static final Map<String, Long> ALIVE_CHECKS = new ConcurrentHashMap<>();
+
+    private OdooConfiguration configuration;
+    private OdooHttpClient httpClient;
+    private OdooProtocol protocol;
+    private OdooHttpClient readHttpClient;
+    private OdooProtocol readProtocol;
+    private RetryPolicy retryPolicy;
+    private HedgingPolicy hedgingPolicy;
+    // null unless reads of single records are batched
+    private OdooReadBatcher readBatcher;
+    private String secret;
+    // first parameters of "execute_kw" calls, null until authenticated
+    private volatile Credentials credentials;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     public OdooClient(OdooConfiguration configuration) {
-        this(configuration, false);
+        this.configuration = configuration;
+        this.httpClient = OdooHttpClient.acquire(configuration);
+        this.retryPolicy = new RetryPolicy(configuration);
+        this.hedgingPolicy = new HedgingPolicy(configuration, httpClient.getMetrics());
+        this.protocol = createProtocol(configuration, httpClient);
+
+        if (StringUtils.isNotEmpty(configuration.getReadUrl())) {
+            OdooConfiguration readConfiguration = new OdooConfiguration(configuration);
+            readConfiguration.setUrl(configuration.getReadUrl());
+            this.readHttpClient = OdooHttpClient.acquire(readConfiguration);
+            this.readProtocol = createProtocol(readConfiguration, readHttpClient);
+        }
+
+        if (configuration.getReadBatchWindow() > 0) {
+            this.readBatcher = OdooReadBatcher.forSession(getSessionKey());
+        }
     }
 
-    public OdooClient(OdooConfiguration configuration, boolean logTransport) {
-        this.configuration = configuration;
-        this.client = new XmlRpcClient();
-        this.authenticationToken = null;
-        this.xmlRpcClientConfigCommon = createXmlRpcClientConfig(OdooConstants.XMLRPC_COMMON);
+    private static OdooProtocol createProtocol(OdooConfiguration configuration, OdooHttpClient httpClient) {
+        return Constants.PROTOCOL_JSONRPC.equals(configuration.getProtocol())
+                ? new JsonRpcProtocol(configuration, httpClient)
+                : new XmlRpcProtocol(configuration, httpClient);
+    }
+
+    /**
+     * @return counters of the requests sent to odoo, shared with other clients using the same connections
+     */
+    public OdooMetrics getMetrics() {
+        return httpClient.getMetrics();
+    }
+
+    /**
+     * @return counters of the requests sent to the read replica, null if none is configured
+     */
+    public OdooMetrics getReadMetrics() {
+        return readHttpClient != null ? readHttpClient.getMetrics() : null;
+    }
 
-        // set a default of XML-RPC client configuration that fits most cases
-        client.setConfig(createXmlRpcClientConfig(OdooConstants.XMLRPC_OBJECT));
+    /**
+     * Releases the pooled connections used by this client. Further calls do nothing, so the connections shared with other
+     * clients stay open.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        httpClient.release();
+        if (readHttpClient != null) {
+            readHttpClient.release();
+        }
+    }
 
-        if (logTransport) {
-            client.setTransportFactory(() -> new MessageLoggingTransport(client));
+    /**
+     * Calls a method of the odoo service that doesn't require authentication, e.g. "version". These methods do not change
+     * data, so they are retried after transient failures.
+     */
+    public Object executeCommon(String method, Object... parameters) {
+        try (Scope scope = beginOperation()) {
+            return executeOperation(() -> executeWithRetry(() -> protocol.execute(OdooProtocol.SERVICE_COMMON, method,
+                    Arrays.asList(parameters))));
         }
     }
 
-    private XmlRpcClientConfig createXmlRpcClientConfig(String path) {
+    /**
+     * @return the API features of the odoo server, determined by one "version" call shared by all clients using the same
+     * URL; {@link OdooCapabilities#UNKNOWN} if the call fails, it is repeated on the next use then
+     */
+    public OdooCapabilities getCapabilities() {
+        // concurrent first uses, e.g. by an operation and the warm-up, wait for the same call
+        OdooCapabilities capabilities = CAPABILITIES.computeIfAbsent(Utils.splitUrls(configuration.getUrl()).get(0), url -> {
+            try {
+                OdooCapabilities result = OdooCapabilities.of((Map<?, ?>) executeCommon("version"));
+                LOG.info("Connected to {0}", result);
+                return result;
+            }
+            catch (ConnectorException e) {
+                LOG.warn(e, "Unable to determine the odoo version, using the API available in all versions");
+                return null;
+            }
+        });
+        return capabilities != null ? capabilities : OdooCapabilities.UNKNOWN;
+    }
+
+    /**
+     * Checks that every odoo node answers a "version" call within {@link Constants#ALIVE_CHECK_TIMEOUT}. Nodes not
+     * answering are skipped by later calls until they pass a check again. A successful check is valid for
+     * {@link Constants#ALIVE_CHECK_INTERVAL} for all clients using the same URLs, so checking pooled connectors before
+     * each operation does not add calls.
+     *
+     * @throws ConnectorException if no odoo node answers
+     */
+    public void checkAlive() {
+        String urls = configuration.getUrl();
+        Long lastCheck = ALIVE_CHECKS.get(urls);
+        if (lastCheck != null && System.nanoTime() - lastCheck < TimeUnit.MILLISECONDS.toNanos(Constants.ALIVE_CHECK_INTERVAL)) {
+            return;
+        }
+
         try {
-            XmlRpcClientConfigImpl xmlRpcCfg = new XmlRpcClientConfigImpl();
-            xmlRpcCfg.setServerURL(new URL(String.format("%s" + path, configuration.getUrl())));
-            return xmlRpcCfg;
+            httpClient.checkAlive(Constants.ALIVE_CHECK_TIMEOUT);
         }
-        catch (MalformedURLException e) {
-            throw new ConfigurationException("Invalid server URL", e);
+        catch (IOException e) {
+            throw new ConnectionFailedException(e);
         }
+        ALIVE_CHECKS.put(urls, System.nanoTime());
     }
 
-    public XmlRpcClientConfig getXmlRpcClientConfigCommon() {
-        return xmlRpcClientConfigCommon;
+    /**
+     * Authenticates to odoo unless already done, e.g. to prepare the client before its first operation.
+     */
+    public void authenticate() {
+        executeOperationWithAuthentication(() -> null);
     }
 
-    public XmlRpcClient getXmlRpcClient() {
-        return client;
+    /**
+     * Same as executeOperation but authenticates to odoo first if not already done. This is the entry point of connector
+     * operations, so the operation timeout starts here unless called within another operation.
+     */
+    public <T> T executeOperationWithAuthentication(XmlRpcOp<T> operation) {
+        try (Scope scope = beginOperation()) {
+            return executeAuthenticated(operation);
+        }
     }
 
     /**
-     * Same as executeOperation but authenticates to odoo first if not already done.
+     * Same as {@link #executeOperationWithAuthentication(XmlRpcOp)} but sends all API calls of the operation with the
+     * given priority.
      */
-    public <T> T executeOperationWithAuthentication(XmlRpcOp<T> operation) {
+    public <T> T executeOperationWithAuthentication(RequestPriority priority, XmlRpcOp<T> operation) {
+        try (Scope scope = RequestPriority.activate(priority)) {
+            return executeOperationWithAuthentication(operation);
+        }
+    }
+
+    private <T> T executeAuthenticated(XmlRpcOp<T> operation) {
         return executeOperation(() -> {
-            if (authenticationToken == null) {
-                GuardedStringAccessor accessorSecret = new GuardedStringAccessor();
-                configuration.getPassword().access(accessorSecret);
+            getCredentials();
+            return operation.execute();
+        });
+    }
 
-                Object authenticationResult = client.execute(xmlRpcClientConfigCommon, "authenticate", Arrays.asList(
-                        configuration.getDatabase(), configuration.getUsername(), new String(accessorSecret.getClearChars()),
-                        Collections.emptyMap()));
+    private Credentials getCredentials() throws XmlRpcException {
+        Credentials current = credentials;
+        return current != null ? current : authenticate(null);
+    }
 
-                if (Boolean.FALSE.equals(authenticationResult)) {
-                    throw new ConnectorException("Authentication failed, probably invalid username or password");
-                }
+    /**
+     * Resolves the uid of the configured user. The uid is taken from the sessions shared by all clients if another client
+     * authenticated the user already, so pooled connector instances do not authenticate again. The password may as well be
+     * an API key of the user.
+     *
+     * @param rejected credentials odoo denied access with, their uid is not used again, null if none
+     * @return the credentials to call "execute_kw" with
+     */
+    private synchronized Credentials authenticate(Credentials rejected) throws XmlRpcException {
+        if (credentials != null && credentials != rejected) {
+            // authenticated meanwhile by another thread
+            return credentials;
+        }
+
+        if (secret == null) {
+            GuardedStringAccessor accessorSecret = new GuardedStringAccessor();
+            configuration.getPassword().access(accessorSecret);
+            secret = new String(accessorSecret.getClearChars());
+        }
+
+        String sessionKey = getSessionKey();
+        if (rejected != null) {
+            SESSIONS.remove(sessionKey, rejected.getUid());
+        }
+
+        Integer uid = SESSIONS.get(sessionKey);
+        if (uid == null) {
+            Object authenticationResult = executeWithRetry(() -> protocol.execute(OdooProtocol.SERVICE_COMMON,
+                    "authenticate", Arrays.asList(configuration.getDatabase(), configuration.getUsername(), secret,
+                            Collections.emptyMap())));
 
-                authenticationToken = (Integer) authenticationResult;
+            if (Boolean.FALSE.equals(authenticationResult)) {
+                throw new ConnectorException("Authentication failed, probably invalid username or password");
+            }
+
+            uid = (Integer) authenticationResult;
+            SESSIONS.put(sessionKey, uid);
+        }
+
+        credentials = new Credentials(configuration.getDatabase(), uid, secret);
+        return credentials;
+    }
+
+    /**
+     * Calls "execute_kw" with the credentials of the session. If odoo denies access, e.g. because the shared uid is outdated
+     * after the user was recreated or its password changed, authenticates again and repeats the call once. Odoo did not
+     * execute a call it denied, so this is safe for calls changing data as well.
+     */
+    private <T> T executeKw(KwCall<T> call, String model, String operation, Object[] operationParameters) throws XmlRpcException {
+        Credentials used = getCredentials();
+        try {
+            return call.execute(new ExecuteArguments(used, model, operation, operationParameters));
+        }
+        catch (XmlRpcException e) {
+            if (!isAccessDenied(e)) {
+                throw e;
+            }
+            LOG.info("Authenticating again after odoo denied access: {0}", e.getMessage());
+            return call.execute(new ExecuteArguments(authenticate(used), model, operation, operationParameters));
+        }
+    }
+
+    /**
+     * Same as {@link #executeKw(KwCall, String, String, Object[])} for asynchronous calls.
+     */
+    private CompletableFuture<Object> executeKwAsync(Function<List<Object>, CompletableFuture<Object>> call, String model,
+            String operation, Object[] operationParameters) {
+
+        Credentials used;
+        try {
+            used = getCredentials();
+        }
+        catch (XmlRpcException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Deadline deadline = Deadline.current();
+        RequestPriority priority = RequestPriority.current();
+        return call.apply(new ExecuteArguments(used, model, operation, operationParameters)).exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (!(cause instanceof XmlRpcException) || !isAccessDenied((XmlRpcException) cause)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            LOG.info("Authenticating again after odoo denied access: {0}", cause.getMessage());
+            // the repeated call is sent by another thread
+            try (Scope deadlineScope = Deadline.activate(deadline); Scope priorityScope = RequestPriority.activate(priority)) {
+                return call.apply(new ExecuteArguments(authenticate(used), model, operation, operationParameters));
+            }
+            catch (XmlRpcException | RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
             }
-            return operation.execute();
         });
     }
 
+    /**
+     * @return key of the odoo user, under which the clients of the same user share their state
+     */
+    String getSessionKey() {
+        return String.join("|", Utils.splitUrls(configuration.getUrl()).get(0), configuration.getDatabase(),
+                configuration.getUsername());
+    }
+
+    private static boolean isAccessDenied(XmlRpcException e) {
+        // XML-RPC reports a fault code, JSON-RPC the name of the exception
+        return e.code == OdooConstants.FAULT_CODE_ACCESS_DENIED
+                || e.getMessage() != null && e.getMessage().startsWith(OdooConstants.EXCEPTION_ACCESS_DENIED);
+    }
+
+    /**
+     * Starts the deadline of a connector operation, nested operations share the deadline of the outermost one.
+     */
+    private Scope beginOperation() {
+        Deadline deadline = Deadline.current();
+        if (deadline == null && configuration.getOperationTimeout() > 0) {
+            deadline = Deadline.after(configuration.getOperationTimeout());
+        }
+        return Deadline.activate(deadline);
+    }
+
+    /**
+     * Runs calls reverting the changes of a failed connector operation, e.g. deleting records created before. As the
+     * failure might be caused by the operation timeout, these calls get a new time budget.
+     */
+    public void executeCompensation(Runnable compensation) {
+        Deadline deadline = configuration.getOperationTimeout() > 0 ? Deadline.after(configuration.getOperationTimeout()) : null;
+        try (Scope scope = Deadline.activate(deadline)) {
+            compensation.run();
+        }
+    }
+
     /**
      * Executes the connector operation and translates exceptions thrown.
      *
@@ -100,10 +369,14 @@ public class OdooClient {
             return operation.execute();
         }
         catch (XmlRpcException e) {
-            if (e.getCause() instanceof ConnectException) {
+            Deadline deadline = Deadline.current();
+            if (deadline != null && deadline.isExpired()) {
+                throw new OperationTimeoutException("Operation timeout of " + configuration.getOperationTimeout() + " ms exceeded", e);
+            }
+            else if (e.getCause() instanceof ConnectException) {
                 throw new ConnectionFailedException(e);
             }
-            else if (e.getCause() instanceof IOException) {
+            else if (e.getCause() instanceof IOException || e instanceof XmlRpcHttpTransportException) {
                 throw new ConnectorIOException(e);
             }
             throw new ConnectorException(e);
@@ -111,22 +384,272 @@ public class OdooClient {
     }
 
     /**
-     * Simplifies an XML-RPC call to odoo. The usual first parameters (db, uid, pwd) are taken from configuration and
-     * authentication. The XML-RPC function called is "execute_kw".
+     * Executes the call and repeats it after transient failures as long as allowed by the {@link RetryPolicy}.
+     */
+    private <T> T executeWithRetry(XmlRpcOp<T> operation) throws XmlRpcException {
+        return executeWithRetry(operation, () -> true);
+    }
+
+    /**
+     * @param repeatable tells after a failure whether the call can be repeated at all
+     */
+    private <T> T executeWithRetry(XmlRpcOp<T> operation, BooleanSupplier repeatable) throws XmlRpcException {
+        for (int retry = 0; ; retry++) {
+            try {
+                return operation.execute();
+            }
+            catch (XmlRpcException e) {
+                long delay = repeatable.getAsBoolean() ? retryPolicy.getDelay(e, retry, Deadline.current()) : -1;
+                if (delay < 0) {
+                    throw e;
+                }
+
+                LOG.info("Retrying odoo call in {0} ms after transient failure: {1}", delay, e.getMessage());
+                getMetrics().getRetries().increment();
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #executeWithRetry(XmlRpcOp)} for asynchronous calls, the retries are scheduled without blocking a
+     * thread.
+     */
+    private CompletableFuture<Object> executeAsyncWithRetry(Supplier<CompletableFuture<Object>> call) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        executeAsyncWithRetry(call, 0, Deadline.current(), RequestPriority.current(), result);
+        return result;
+    }
+
+    private void executeAsyncWithRetry(Supplier<CompletableFuture<Object>> call, int retry, Deadline deadline,
+            RequestPriority priority, CompletableFuture<Object> result) {
+
+        CompletableFuture<Object> attempt;
+        // retries run in another thread, which needs to know the deadline and priority as well
+        try (Scope deadlineScope = Deadline.activate(deadline); Scope priorityScope = RequestPriority.activate(priority)) {
+            attempt = call.get();
+        }
+
+        attempt.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            long delay = cause instanceof XmlRpcException ? retryPolicy.getDelay((XmlRpcException) cause, retry, deadline) : -1;
+            if (delay < 0) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            LOG.info("Retrying odoo call in {0} ms after transient failure: {1}", delay, cause.getMessage());
+            getMetrics().getRetries().increment();
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                    .execute(() -> executeAsyncWithRetry(call, retry + 1, deadline, priority, result));
+        });
+    }
+
+    /**
+     * Simplifies an API call to odoo. The usual first parameters (db, uid, pwd) are taken from configuration and
+     * authentication. The function called is "execute_kw". Operations only reading data, e.g. "search_read", are retried
+     * after transient failures and hedged if enabled, the latter as asynchronous call.
      */
     public Object executeXmlRpc(String model, String operation, Object... operationParameters) {
-        GuardedStringAccessor accessorSecret = new GuardedStringAccessor();
-        configuration.getPassword().access(accessorSecret);
+        if (hedgingPolicy.isEnabled() && IDEMPOTENT_OPERATIONS.contains(operation)) {
+            return await(executeXmlRpcAsync(model, operation, operationParameters));
+        }
+
+        XmlRpcOp<Object> call = () -> executeRead(operation, () -> true, p -> executeKw(
+                params -> p.execute(OdooProtocol.SERVICE_OBJECT, "execute_kw", params), model, operation, operationParameters));
+        if (!IDEMPOTENT_OPERATIONS.contains(operation)) {
+            return executeOperation(call);
+        }
+        return executeOperation(() -> executeWithRetry(call));
+    }
+
+    /**
+     * Reads a single record by its id like "search_read". If a read batch window is configured, the read is combined
+     * with concurrent reads of other records of the same model, see {@link OdooReadBatcher}.
+     *
+     * @param fields the fields to read, all if empty
+     * @return the record, null if not found
+     */
+    public Map<String, Object> readById(String model, int id, List<String> fields) {
+        if (readBatcher != null) {
+            try (Scope scope = beginOperation()) {
+                return readBatcher.read(this, model, id, fields, configuration.getReadBatchWindow());
+            }
+        }
+
+        Object[] results = (Object[]) executeXmlRpc(model, OdooConstants.OPERATION_SEARCH_READ,
+                Collections.singletonList(Collections.singletonList(
+                        Arrays.asList(OdooConstants.MODEL_FIELD_FIELD_NAME_ID, OdooConstants.OPERATOR_EQUALS, id))),
+                Map.of(OdooConstants.OPERATION_PARAMETER_FIELDS, fields));
+        return results.length > 0 ? (Map<String, Object>) results[0] : null;
+    }
+
+    /**
+     * Same as {@link #executeXmlRpc(String, String, Object...)} but without blocking the calling thread. Meant to run
+     * independent calls concurrently, e.g. when fetching the schema, bounded by the max connections per host. Use
+     * {@link #await(CompletableFuture)} to get the result and {@link #thenCompose(CompletableFuture, Function)} to chain
+     * dependent calls.
+     */
+    public CompletableFuture<Object> executeXmlRpcAsync(String model, String operation, Object... operationParameters) {
+        Supplier<CompletableFuture<Object>> call = () -> executeReadAsync(operation, p -> executeKwAsync(
+                params -> p.executeAsync(OdooProtocol.SERVICE_OBJECT, "execute_kw", params), model, operation, operationParameters));
+        if (!IDEMPOTENT_OPERATIONS.contains(operation)) {
+            return call.get();
+        }
+        return executeAsyncWithRetry(hedgingPolicy.isEnabled() ? () -> hedgingPolicy.execute(model, operation, call) : call);
+    }
+
+    /**
+     * Waits for the result of an asynchronous call and translates exceptions as {@link #executeOperation(XmlRpcOp)}. Gives
+     * up when the {@link Deadline#current()} deadline passes, also if the future is completed by a call of another
+     * operation.
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        return executeOperation(() -> join(future));
+    }
+
+    /**
+     * Chains an asynchronous call depending on the result of another one. The next call is made by the thread completing
+     * the future, so the deadline and priority of the calling thread are passed on to it.
+     */
+    public <T, R> CompletableFuture<R> thenCompose(CompletableFuture<T> future, Function<T, CompletableFuture<R>> next) {
+        Deadline deadline = Deadline.current();
+        RequestPriority priority = RequestPriority.current();
+        return future.thenCompose(result -> {
+            try (Scope deadlineScope = Deadline.activate(deadline); Scope priorityScope = RequestPriority.activate(priority)) {
+                return next.apply(result);
+            }
+        });
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws XmlRpcException {
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline == null) {
+                return future.join();
+            }
+            // a copy, the future may be awaited by other operations with other deadlines
+            return future.copy().orTimeout(Math.max(0, deadline.remainingMillis()) + 1, TimeUnit.MILLISECONDS).join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new XmlRpcException("Deadline of the connector operation exceeded", e.getCause());
+            }
+            else if (e.getCause() instanceof XmlRpcException) {
+                throw (XmlRpcException) e.getCause();
+            }
+            else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #executeXmlRpc(String, String, Object...)} for operations returning a list like "search_read", but
+     * the elements of the list are passed to the handler while the response is being received instead of returning the
+     * whole list. The handler is called by the calling thread and may return false to stop the retrieval. The call is
+     * retried after transient failures only if no element has been passed to the handler yet.
+     *
+     * @param handlerCallsOdoo whether the handler calls odoo itself, e.g. to read related records. The response is read
+     *                         completely before the elements are handled then, as the handler's calls would otherwise
+     *                         wait for connections held by the stream, however many there are.
+     */
+    public void executeXmlRpcStreaming(OdooProtocol.ElementHandler handler, boolean handlerCallsOdoo, String model, String operation,
+            Object... operationParameters) {
+
+        AtomicBoolean handled = new AtomicBoolean();
+        OdooProtocol.ElementHandler trackingHandler = element -> {
+            handled.set(true);
+            return handler.handle(element);
+        };
+
+        // elements handled already would be handled again when falling back to the primary
+        XmlRpcOp<Object> call = () -> executeRead(operation, () -> !handled.get(), p -> executeKw(params -> {
+            if (!handlerCallsOdoo) {
+                BoundedResultQueue.execute(h -> p.executeStreaming(OdooProtocol.SERVICE_OBJECT, "execute_kw", params, h),
+                        Constants.SEARCH_QUEUE_CAPACITY, trackingHandler);
+            }
+            else {
+                Object[] results = (Object[]) p.execute(OdooProtocol.SERVICE_OBJECT, "execute_kw", params);
+                for (Object result : results) {
+                    if (!trackingHandler.handle(result)) {
+                        break;
+                    }
+                }
+            }
+            return null;
+        }, model, operation, operationParameters));
 
-        List<Object> params = new LinkedList<>();
-        params.add(configuration.getDatabase());
-        params.add(authenticationToken);
-        params.add(new String(accessorSecret.getClearChars()));
-        params.add(model);
-        params.add(operation);
-        params.addAll(Arrays.asList(operationParameters));
+        // elements handled already would be handled again by a retry
+        executeOperation(() -> IDEMPOTENT_OPERATIONS.contains(operation) ? executeWithRetry(call, () -> !handled.get()) : call.execute());
+    }
 
-        return executeOperation(() -> client.execute("execute_kw", params));
+    /**
+     * @return whether the call is sent to the read replica
+     */
+    private boolean isReplicaRead(String operation) {
+        return readProtocol != null && IDEMPOTENT_OPERATIONS.contains(operation) && RequestPriority.current() == RequestPriority.BULK;
+    }
+
+    /**
+     * Executes the call on the read replica if it only reads data in a bulk operation, otherwise and if it fails on the
+     * replica on the primary odoo.
+     *
+     * @param repeatable tells after a failure whether the call can be repeated at all
+     */
+    private <T> T executeRead(String operation, BooleanSupplier repeatable, ProtocolCall<T> call) throws XmlRpcException {
+        if (!isReplicaRead(operation)) {
+            return call.execute(protocol);
+        }
+
+        try {
+            return call.execute(readProtocol);
+        }
+        catch (XmlRpcException e) {
+            Deadline deadline = Deadline.current();
+            if (deadline != null && deadline.isExpired() || !repeatable.getAsBoolean()) {
+                throw e;
+            }
+            LOG.info("Reading from primary odoo after failure on read replica: {0}", e.getMessage());
+            getMetrics().getReplicaFallbacks().increment();
+            return call.execute(protocol);
+        }
+    }
+
+    /**
+     * Same as {@link #executeRead(String, BooleanSupplier, ProtocolCall)} for asynchronous calls.
+     */
+    private CompletableFuture<Object> executeReadAsync(String operation, Function<OdooProtocol, CompletableFuture<Object>> call) {
+        if (!isReplicaRead(operation)) {
+            return call.apply(protocol);
+        }
+
+        Deadline deadline = Deadline.current();
+        RequestPriority priority = RequestPriority.current();
+        return call.apply(readProtocol).exceptionallyCompose(e -> {
+            if (deadline != null && deadline.isExpired()) {
+                return CompletableFuture.failedFuture(e);
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            LOG.info("Reading from primary odoo after failure on read replica: {0}", cause.getMessage());
+            getMetrics().getReplicaFallbacks().increment();
+            // the fallback is sent by another thread
+            try (Scope deadlineScope = Deadline.activate(deadline); Scope priorityScope = RequestPriority.activate(priority)) {
+                return call.apply(protocol);
+            }
+        });
     }
 
     /**
@@ -142,4 +665,28 @@ public class OdooClient {
 
     }
 
+    /**
+     * Call which can be executed with different protocol instances, i.e. on the primary odoo or the read replica.
+     *
+     * @param <T> return type of the call
+     */
+    @FunctionalInterface
+    private interface ProtocolCall<T> {
+
+        T execute(OdooProtocol protocol) throws XmlRpcException;
+
+    }
+
+    /**
+     * Call of "execute_kw" with the given parameters, which can be repeated with new credentials.
+     *
+     * @param <T> return type of the call
+     */
+    @FunctionalInterface
+    private interface KwCall<T> {
+
+        T execute(List<Object> params) throws XmlRpcException;
+
+    }
+
 }
@@ -18,8 +18,36 @@ public class OdooConfiguration extends AbstractConfiguration {
     private String database;
     private String username;
     private GuardedString password;
+    private String protocol = Constants.PROTOCOL_XMLRPC;
     private String retrieveModels;
     private String expandRelations;
+    private int maxConnectionsPerHost = Constants.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private int connectionIdleTimeout = Constants.DEFAULT_CONNECTION_IDLE_TIMEOUT;
+    private int connectTimeout = Constants.DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = Constants.DEFAULT_READ_TIMEOUT;
+    private boolean gzipResponses = true;
+    private int gzipRequestThreshold;
+    private String httpClient = Constants.HTTP_CLIENT_APACHE;
+    private boolean http2;
+    private int retryAttempts = Constants.DEFAULT_RETRY_ATTEMPTS;
+    private int retryBackoff = Constants.DEFAULT_RETRY_BACKOFF;
+    private int circuitBreakerThreshold = Constants.DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private int circuitBreakerOpenTime = Constants.DEFAULT_CIRCUIT_BREAKER_OPEN_TIME;
+    private boolean adaptiveConcurrency;
+    private int operationTimeout;
+    private int bulkRequestShare = Constants.DEFAULT_BULK_REQUEST_SHARE;
+    private String loadBalancing = Constants.LOAD_BALANCING_LEAST_REQUESTS;
+    private int healthCheckInterval = Constants.DEFAULT_HEALTH_CHECK_INTERVAL;
+    private String readUrl;
+    private int hedgingPercentile;
+    private int hedgingMaxShare = Constants.DEFAULT_HEDGING_MAX_SHARE;
+    private int readBatchWindow;
+    private boolean warmUp;
+    private int searchChunkSize;
+    private int searchParallelism = 1;
+    private boolean searchPreserveOrder = true;
+    private int messageLogSampling;
+    private int messageLogSlowThreshold;
 
     public OdooConfiguration() {
     }
@@ -29,8 +57,36 @@ public class OdooConfiguration extends AbstractConfiguration {
         this.database = other.database;
         this.username = other.username;
         this.password = other.password;
+        this.protocol = other.protocol;
         this.retrieveModels = other.retrieveModels;
         this.expandRelations = other.expandRelations;
+        this.maxConnectionsPerHost = other.maxConnectionsPerHost;
+        this.connectionIdleTimeout = other.connectionIdleTimeout;
+        this.connectTimeout = other.connectTimeout;
+        this.readTimeout = other.readTimeout;
+        this.gzipResponses = other.gzipResponses;
+        this.gzipRequestThreshold = other.gzipRequestThreshold;
+        this.httpClient = other.httpClient;
+        this.http2 = other.http2;
+        this.retryAttempts = other.retryAttempts;
+        this.retryBackoff = other.retryBackoff;
+        this.circuitBreakerThreshold = other.circuitBreakerThreshold;
+        this.circuitBreakerOpenTime = other.circuitBreakerOpenTime;
+        this.adaptiveConcurrency = other.adaptiveConcurrency;
+        this.operationTimeout = other.operationTimeout;
+        this.bulkRequestShare = other.bulkRequestShare;
+        this.loadBalancing = other.loadBalancing;
+        this.healthCheckInterval = other.healthCheckInterval;
+        this.readUrl = other.readUrl;
+        this.hedgingPercentile = other.hedgingPercentile;
+        this.hedgingMaxShare = other.hedgingMaxShare;
+        this.readBatchWindow = other.readBatchWindow;
+        this.warmUp = other.warmUp;
+        this.searchChunkSize = other.searchChunkSize;
+        this.searchParallelism = other.searchParallelism;
+        this.searchPreserveOrder = other.searchPreserveOrder;
+        this.messageLogSampling = other.messageLogSampling;
+        this.messageLogSlowThreshold = other.messageLogSlowThreshold;
     }
 
     private void required(String fieldName, String field) {
@@ -43,12 +99,51 @@ public class OdooConfiguration extends AbstractConfiguration {
         }
     }
 
+    private <T> void valid(String fieldName, T field, Predicate<T> validTester, String expectation) {
+        if (!validTester.test(field)) {
+            throw new ConfigurationException("Configuration Property " + fieldName + " must be " + expectation);
+        }
+    }
+
     @Override
     public void validate() {
         required("url", url);
+        valid("url", url, u -> Utils.splitUrls(u).stream().allMatch(n -> n.startsWith("http://") || n.startsWith("https://")),
+                "a comma-separated list of http or https URLs");
         required("database", database);
         required("username", username);
         required("password", password, p -> p != null && !new GuardedString().equals(p));
+        valid("protocol", protocol, p -> Constants.PROTOCOL_XMLRPC.equals(p) || Constants.PROTOCOL_JSONRPC.equals(p),
+                "either " + Constants.PROTOCOL_XMLRPC + " or " + Constants.PROTOCOL_JSONRPC);
+        valid("maxConnectionsPerHost", maxConnectionsPerHost, v -> v > 0, "positive");
+        valid("connectionIdleTimeout", connectionIdleTimeout, v -> v > 0, "positive");
+        valid("connectTimeout", connectTimeout, v -> v >= 0, "zero or positive");
+        valid("readTimeout", readTimeout, v -> v >= 0, "zero or positive");
+        valid("gzipRequestThreshold", gzipRequestThreshold, v -> v >= 0, "zero or positive");
+        valid("httpClient", httpClient, c -> Constants.HTTP_CLIENT_APACHE.equals(c) || Constants.HTTP_CLIENT_JDK.equals(c),
+                "either " + Constants.HTTP_CLIENT_APACHE + " or " + Constants.HTTP_CLIENT_JDK);
+        valid("http2", http2, h -> !h || Constants.HTTP_CLIENT_JDK.equals(httpClient),
+                "disabled unless httpClient is " + Constants.HTTP_CLIENT_JDK);
+        valid("retryAttempts", retryAttempts, v -> v >= 0, "zero or positive");
+        valid("retryBackoff", retryBackoff, v -> v > 0, "positive");
+        valid("circuitBreakerThreshold", circuitBreakerThreshold, v -> v >= 0, "zero or positive");
+        valid("circuitBreakerOpenTime", circuitBreakerOpenTime, v -> v > 0, "positive");
+        valid("operationTimeout", operationTimeout, v -> v >= 0, "zero or positive");
+        valid("bulkRequestShare", bulkRequestShare, v -> v > 0 && v <= 100, "between 1 and 100");
+        valid("loadBalancing", loadBalancing, b -> Constants.LOAD_BALANCING_ROUND_ROBIN.equals(b)
+                        || Constants.LOAD_BALANCING_LEAST_REQUESTS.equals(b),
+                "either " + Constants.LOAD_BALANCING_ROUND_ROBIN + " or " + Constants.LOAD_BALANCING_LEAST_REQUESTS);
+        valid("healthCheckInterval", healthCheckInterval, v -> v >= 0, "zero or positive");
+        valid("readUrl", readUrl, u -> StringUtils.isEmpty(u)
+                        || Utils.splitUrls(u).stream().allMatch(n -> n.startsWith("http://") || n.startsWith("https://")),
+                "empty or a comma-separated list of http or https URLs");
+        valid("hedgingPercentile", hedgingPercentile, v -> v >= 0 && v < 100, "between 0 and 99");
+        valid("hedgingMaxShare", hedgingMaxShare, v -> v > 0 && v <= 100, "between 1 and 100");
+        valid("readBatchWindow", readBatchWindow, v -> v >= 0, "zero or positive");
+        valid("searchChunkSize", searchChunkSize, v -> v >= 0, "zero or positive");
+        valid("searchParallelism", searchParallelism, v -> v > 0, "positive");
+        valid("messageLogSampling", messageLogSampling, v -> v >= 0, "zero or positive");
+        valid("messageLogSlowThreshold", messageLogSlowThreshold, v -> v >= 0, "zero or positive");
     }
 
     @ConfigurationProperty(
@@ -108,6 +203,19 @@ public class OdooConfiguration extends AbstractConfiguration {
         this.password = password;
     }
 
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.protocol",
+            helpMessageKey = "odoo.config.protocol.help",
+            groupMessageKey = "odoo.config.group.basic",
+            order = 5)
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
     @ConfigurationProperty(
             displayMessageKey = "odoo.config.models.retrieve",
             helpMessageKey = "odoo.config.models.retrieve.help",
@@ -134,5 +242,355 @@ public class OdooConfiguration extends AbstractConfiguration {
         this.expandRelations = expandRelations;
     }
 
-}
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.max",
+            helpMessageKey = "odoo.config.connection.max.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 20)
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.idle",
+            helpMessageKey = "odoo.config.connection.idle.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 21)
+    public int getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    public void setConnectionIdleTimeout(int connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.timeout.connect",
+            helpMessageKey = "odoo.config.connection.timeout.connect.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 22)
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.timeout.read",
+            helpMessageKey = "odoo.config.connection.timeout.read.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 23)
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.gzip.responses",
+            helpMessageKey = "odoo.config.connection.gzip.responses.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 24)
+    public boolean isGzipResponses() {
+        return gzipResponses;
+    }
+
+    public void setGzipResponses(boolean gzipResponses) {
+        this.gzipResponses = gzipResponses;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.gzip.requests",
+            helpMessageKey = "odoo.config.connection.gzip.requests.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 25)
+    public int getGzipRequestThreshold() {
+        return gzipRequestThreshold;
+    }
 
+    public void setGzipRequestThreshold(int gzipRequestThreshold) {
+        this.gzipRequestThreshold = gzipRequestThreshold;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.client",
+            helpMessageKey = "odoo.config.connection.client.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 26)
+    public String getHttpClient() {
+        return httpClient;
+    }
+
+    public void setHttpClient(String httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.http2",
+            helpMessageKey = "odoo.config.connection.http2.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 27)
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.retry.attempts",
+            helpMessageKey = "odoo.config.connection.retry.attempts.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 28)
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    public void setRetryAttempts(int retryAttempts) {
+        this.retryAttempts = retryAttempts;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.retry.backoff",
+            helpMessageKey = "odoo.config.connection.retry.backoff.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 29)
+    public int getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(int retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.breaker.threshold",
+            helpMessageKey = "odoo.config.connection.breaker.threshold.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 30)
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.breaker.open",
+            helpMessageKey = "odoo.config.connection.breaker.open.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 31)
+    public int getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    public void setCircuitBreakerOpenTime(int circuitBreakerOpenTime) {
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.adaptive",
+            helpMessageKey = "odoo.config.connection.adaptive.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 32)
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.timeout.operation",
+            helpMessageKey = "odoo.config.connection.timeout.operation.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 33)
+    public int getOperationTimeout() {
+        return operationTimeout;
+    }
+
+    public void setOperationTimeout(int operationTimeout) {
+        this.operationTimeout = operationTimeout;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.bulk",
+            helpMessageKey = "odoo.config.connection.bulk.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 34)
+    public int getBulkRequestShare() {
+        return bulkRequestShare;
+    }
+
+    public void setBulkRequestShare(int bulkRequestShare) {
+        this.bulkRequestShare = bulkRequestShare;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.balancing",
+            helpMessageKey = "odoo.config.connection.balancing.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 35)
+    public String getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    public void setLoadBalancing(String loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.health",
+            helpMessageKey = "odoo.config.connection.health.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 36)
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(int healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.read",
+            helpMessageKey = "odoo.config.connection.read.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 37)
+    public String getReadUrl() {
+        return readUrl;
+    }
+
+    public void setReadUrl(String readUrl) {
+        this.readUrl = StringUtils.removeEnd(readUrl, "/");
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.hedging.percentile",
+            helpMessageKey = "odoo.config.connection.hedging.percentile.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 38)
+    public int getHedgingPercentile() {
+        return hedgingPercentile;
+    }
+
+    public void setHedgingPercentile(int hedgingPercentile) {
+        this.hedgingPercentile = hedgingPercentile;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.hedging.share",
+            helpMessageKey = "odoo.config.connection.hedging.share.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 39)
+    public int getHedgingMaxShare() {
+        return hedgingMaxShare;
+    }
+
+    public void setHedgingMaxShare(int hedgingMaxShare) {
+        this.hedgingMaxShare = hedgingMaxShare;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.log.sampling",
+            helpMessageKey = "odoo.config.connection.log.sampling.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 40)
+    public int getMessageLogSampling() {
+        return messageLogSampling;
+    }
+
+    public void setMessageLogSampling(int messageLogSampling) {
+        this.messageLogSampling = messageLogSampling;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.log.slow",
+            helpMessageKey = "odoo.config.connection.log.slow.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 41)
+    public int getMessageLogSlowThreshold() {
+        return messageLogSlowThreshold;
+    }
+
+    public void setMessageLogSlowThreshold(int messageLogSlowThreshold) {
+        this.messageLogSlowThreshold = messageLogSlowThreshold;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.batch.window",
+            helpMessageKey = "odoo.config.connection.batch.window.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 42)
+    public int getReadBatchWindow() {
+        return readBatchWindow;
+    }
+
+    public void setReadBatchWindow(int readBatchWindow) {
+        this.readBatchWindow = readBatchWindow;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.warmup",
+            helpMessageKey = "odoo.config.connection.warmup.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 43)
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.search.chunk",
+            helpMessageKey = "odoo.config.connection.search.chunk.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 44)
+    public int getSearchChunkSize() {
+        return searchChunkSize;
+    }
+
+    public void setSearchChunkSize(int searchChunkSize) {
+        this.searchChunkSize = searchChunkSize;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.search.parallelism",
+            helpMessageKey = "odoo.config.connection.search.parallelism.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 45)
+    public int getSearchParallelism() {
+        return searchParallelism;
+    }
+
+    public void setSearchParallelism(int searchParallelism) {
+        this.searchParallelism = searchParallelism;
+    }
+
+    @ConfigurationProperty(
+            displayMessageKey = "odoo.config.connection.search.order",
+            helpMessageKey = "odoo.config.connection.search.order.help",
+            groupMessageKey = "odoo.config.group.connection",
+            order = 46)
+    public boolean isSearchPreserveOrder() {
+        return searchPreserveOrder;
+    }
+
+    public void setSearchPreserveOrder(boolean searchPreserveOrder) {
+        this.searchPreserveOrder = searchPreserveOrder;
+    }
+
+}
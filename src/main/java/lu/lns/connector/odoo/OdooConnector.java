@@ -1,6 +1,9 @@
 package lu.lns.connector.odoo;
 
 import lu.lns.connector.odoo.schema.OdooModel;
+import lu.lns.connector.odoo.transport.Deadline;
+import lu.lns.connector.odoo.transport.RequestPriority;
+import lu.lns.connector.odoo.transport.Scope;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.objects.Attribute;
 import org.identityconnectors.framework.common.objects.AttributeDelta;
@@ -23,11 +26,15 @@ import org.identityconnectors.framework.spi.operations.UpdateDeltaOp;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.singletonList;
 
 /**
- * The odoo connector uses the XML-RPC API of odoo to test connection, retrieve schema and CRUD operations.
+ * The odoo connector uses the XML-RPC (or JSON-RPC) API of odoo to test connection, retrieve schema and CRUD operations.
  * See https://www.odoo.com/documentation/14.0/webservices/odoo.html.
  * <p>
  * This connector is NOT thread-safe which is assumed by connector framework according to connector implementation guide:
@@ -38,12 +45,22 @@ public class OdooConnector implements PoolableConnector, CreateOp, DeleteOp, Sea
 
     private static final Log LOG = Log.getLog(OdooConnector.class);
 
+    private static final AtomicInteger warmUpThreadCount = new AtomicInteger();
+    private static final ExecutorService warmUpExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "odoo-warm-up-" + warmUpThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private OdooConfiguration configuration;
     private OdooClient client;
     private OdooModelCache cache;
     private OdooSchema schemaFetcher;
     private OdooSearch searcher;
     private OdooWrite writer;
+    private Future<?> warmUp;
+    // limits the warm-up to one operation timeout, cancelled on dispose to abort its requests
+    private Deadline warmUpDeadline;
 
     @Override
     public OdooConfiguration getConfiguration() {
@@ -56,27 +73,64 @@ public class OdooConnector implements PoolableConnector, CreateOp, DeleteOp, Sea
         this.client = new OdooClient(configuration);
         this.cache = new OdooModelCache(client);
         this.schemaFetcher = new OdooSchema(client, configuration);
-        this.searcher = new OdooSearch(client, cache);
+        this.searcher = new OdooSearch(client, cache, configuration);
         this.writer = new OdooWrite(client, cache);
+
+        if (configuration.isWarmUp()) {
+            this.warmUpDeadline = Deadline.cancellable(configuration.getOperationTimeout() > 0
+                    ? Deadline.after(configuration.getOperationTimeout()) : null);
+            this.warmUp = warmUpExecutor.submit(this::warmUp);
+        }
+    }
+
+    /**
+     * Prepares this instance for its first operation: detects the odoo version, authenticates, which opens a pooled
+     * connection, and loads the configured models. Runs in the background, an operation started meanwhile does what
+     * is not done yet itself, so failures are only logged. The warm-up shares the client with the operations, which are
+     * safe to use concurrently, and is aborted when this instance is disposed.
+     */
+    private void warmUp() {
+        try (Scope scope = Deadline.activate(warmUpDeadline)) {
+            client.getCapabilities();
+            client.authenticate();
+            for (String model : new OdooModelNameMatcher(configuration.getRetrieveModels(), true).getModelNames()) {
+                cache.getModel(model);
+            }
+            LOG.ok("Warm-up of odoo connector done");
+        }
+        catch (RuntimeException e) {
+            if (warmUpDeadline.isExpired()) {
+                LOG.ok(e, "Warm-up of odoo connector aborted");
+            }
+            else {
+                LOG.warn(e, "Warm-up of odoo connector failed");
+            }
+        }
     }
 
     @Override
     public void dispose() {
-        // nothing to cleanup here
+        if (warmUp != null) {
+            // no interrupt, it would close the connection of a request in flight, the deadline aborts the request instead
+            warmUpDeadline.cancel();
+            warmUp.cancel(false);
+        }
+        LOG.ok("Odoo communication metrics: {0}", client.getMetrics());
+        if (client.getReadMetrics() != null) {
+            LOG.ok("Odoo read replica communication metrics: {0}", client.getReadMetrics());
+        }
+        client.close();
     }
 
     @Override
     public void checkAlive() {
-        // for now we don't have a connection kept alive between XML-RPC calls
+        client.checkAlive();
     }
 
     @Override
     public void test() {
-        client.executeOperation(() -> {
-            Object result = client.getXmlRpcClient().execute(client.getXmlRpcClientConfigCommon(), "version", Collections.emptyList());
-            LOG.ok("Test connection result: {0}", result);
-            return null;
-        });
+        Object result = client.executeCommon("version");
+        LOG.ok("Test connection result: {0}", result);
     }
 
     @Override
@@ -130,7 +184,10 @@ public class OdooConnector implements PoolableConnector, CreateOp, DeleteOp, Sea
 
     @Override
     public void executeQuery(ObjectClass objectClass, Filter query, ResultsHandler handler, OperationOptions options) {
-        client.executeOperationWithAuthentication(() -> {
+        // getting a single record by uid is interactive, other searches might return many records
+        RequestPriority priority = OdooSearch.isUidLookup(query) ? RequestPriority.INTERACTIVE : RequestPriority.BULK;
+
+        client.executeOperationWithAuthentication(priority, () -> {
             // delegate search operation
             OdooModel model = cache.getModel(objectClass);
             searcher.search(model, query, handler, options);
@@ -10,6 +10,11 @@ public final class OdooConstants {
 
     public final static String XMLRPC_COMMON = "/xmlrpc/2/common";
     public final static String XMLRPC_OBJECT = "/xmlrpc/2/object";
+    public final static String JSONRPC = "/jsonrpc";
+
+    // reported by odoo when the credentials of a call are not valid (anymore)
+    public final static int FAULT_CODE_ACCESS_DENIED = 3;
+    public final static String EXCEPTION_ACCESS_DENIED = "odoo.exceptions.AccessDenied";
 
     public final static String MODEL_NAME_MODELS = "ir.model";
     public final static String MODEL_NAME_MODEL_FIELDS = "ir.model.fields";
@@ -20,6 +25,7 @@ public final class OdooConstants {
 
     public final static String MODEL_FIELD_FIELD_NAME = "name";
     public final static String MODEL_FIELD_FIELD_NAME_ID = "id";
+    public final static String MODEL_FIELD_FIELD_NAME_DISPLAY_NAME = "display_name";
     public final static String MODEL_FIELD_FIELD_TYPE = "ttype";
     public final static String MODEL_FIELD_FIELD_REQUIRED = "required";
     public final static String MODEL_FIELD_FIELD_STORE = "store"; // false means not stored in database but computed
@@ -27,8 +33,11 @@ public final class OdooConstants {
     public final static String MODEL_FIELD_FIELD_SELECTION_ADD = "selection_add";
     public final static String MODEL_FIELD_FIELD_MANY2ONE_RELATED_MODEL = "relation";
 
+    public final static String OPERATION_SEARCH = "search";
+    public final static String OPERATION_SEARCH_COUNT = "search_count";
     public final static String OPERATION_SEARCH_READ = "search_read";
     public final static String OPERATION_READ = "read";
+    public final static String OPERATION_WEB_SEARCH_READ = "web_search_read"; // odoo 17+ with "specification"
     public final static String OPERATION_CREATE = "create";
     public final static String OPERATION_UPDATE = "write";
     public final static String OPERATION_DELETE = "unlink";
@@ -37,6 +46,8 @@ public final class OdooConstants {
     public final static String OPERATION_PARAMETER_OFFSET = "offset";
     public final static String OPERATION_PARAMETER_LIMIT = "limit";
     public final static String OPERATION_PARAMETER_ORDER = "order";
+    public final static String OPERATION_PARAMETER_SPECIFICATION = "specification";
+    public final static String OPERATION_RESULT_RECORDS = "records";
 
     public final static String OPERATOR_NOT = "!";
     public final static String OPERATOR_AND = "&";
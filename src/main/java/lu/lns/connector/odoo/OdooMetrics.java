@@ -0,0 +1,128 @@
+package lu.lns.connector.odoo;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the communication with odoo to measure the effect of configuration changes, e.g. the bytes saved by
+ * compression. The counters are cumulative and shared by all connector instances using the same pooled HTTP client,
+ * see {@link lu.lns.connector.odoo.transport.OdooHttpClient}. This class is thread-safe.
+ */
+public class OdooMetrics {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestsQueued = new LongAdder();
+    private final LongAdder responsesBuffered = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesSentUncompressed = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesReceivedUncompressed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder circuitBreakerOpened = new LongAdder();
+    private final LongAdder circuitBreakerRejections = new LongAdder();
+    private final LongAdder replicaFallbacks = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+
+    /**
+     * @return number of HTTP requests sent
+     */
+    public LongAdder getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return number of HTTP requests which had to wait because of the concurrency limit
+     */
+    public LongAdder getRequestsQueued() {
+        return requestsQueued;
+    }
+
+    /**
+     * @return number of responses read into memory instead of being streamed, as many other responses were being read
+     */
+    public LongAdder getResponsesBuffered() {
+        return responsesBuffered;
+    }
+
+    /**
+     * @return number of request body bytes sent over the wire
+     */
+    public LongAdder getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return number of request body bytes before compression
+     */
+    public LongAdder getBytesSentUncompressed() {
+        return bytesSentUncompressed;
+    }
+
+    /**
+     * @return number of response body bytes received over the wire
+     */
+    public LongAdder getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return number of response body bytes after decompression
+     */
+    public LongAdder getBytesReceivedUncompressed() {
+        return bytesReceivedUncompressed;
+    }
+
+    /**
+     * @return number of API calls repeated after a transient failure
+     */
+    public LongAdder getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return number of times the circuit breaker opened because odoo seemed to be unavailable
+     */
+    public LongAdder getCircuitBreakerOpened() {
+        return circuitBreakerOpened;
+    }
+
+    /**
+     * @return number of requests not sent because the circuit breaker was open
+     */
+    public LongAdder getCircuitBreakerRejections() {
+        return circuitBreakerRejections;
+    }
+
+    /**
+     * @return number of reads repeated on the primary odoo after failing on the read replica
+     */
+    public LongAdder getReplicaFallbacks() {
+        return replicaFallbacks;
+    }
+
+    /**
+     * @return number of API calls sent a second time because the first request took long, see hedging
+     */
+    public LongAdder getHedges() {
+        return hedges;
+    }
+
+    /**
+     * @return number of hedged API calls where the second request was answered first
+     */
+    public LongAdder getHedgesWon() {
+        return hedgesWon;
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + requests + " (queued " + requestsQueued + ", responses buffered " + responsesBuffered + ")"
+                + ", bytesSent=" + bytesSent + " (uncompressed " + bytesSentUncompressed + ")"
+                + ", bytesReceived=" + bytesReceived + " (uncompressed " + bytesReceivedUncompressed + ")"
+                + ", retries=" + retries
+                + ", circuitBreakerOpened=" + circuitBreakerOpened + " (rejected requests " + circuitBreakerRejections + ")"
+                + ", replicaFallbacks=" + replicaFallbacks
+                + ", hedges=" + hedges + " (won " + hedgesWon + ")";
+    }
+
+}
@@ -9,6 +9,7 @@ import org.identityconnectors.framework.common.objects.ObjectClass;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -17,11 +18,14 @@ import static lu.lns.connector.odoo.OdooConstants.*;
 /**
  * On-demand retrieval of odoo model and field information. Retrieved info will be cached until cache is evicted.
  * Connector operations use the {@link OdooModel} to properly map between data types of connId framework and odoo.
+ * Models may be loaded in the background while the connector performs an operation, see
+ * {@link OdooConfiguration#isWarmUp()}, so this class is thread-safe: a model requested by several threads at once is
+ * retrieved only once, the others wait for it.
  */
 public class OdooModelCache {
 
-    private OdooClient client;
-    private Map<String, OdooModel> modelCache = new HashMap<>();
+    private final OdooClient client;
+    private final Map<String, OdooModel> modelCache = new ConcurrentHashMap<>();
 
     public OdooModelCache(OdooClient client) {
         this.client = client;
@@ -32,14 +36,8 @@ public class OdooModelCache {
     }
 
     public OdooModel getModel(String modelName) {
-        OdooModel result = modelCache.get(modelName);
-
-        if (result == null) {
-            result = retrieveModel(modelName);
-            modelCache.put(modelName, result);
-        }
-
-        return result;
+        // evict waits for a retrieval in progress, so a model retrieved before the eviction is not cached after it
+        return modelCache.computeIfAbsent(modelName, this::retrieveModel);
     }
 
     private OdooModel retrieveModel(String modelName) {
@@ -58,8 +56,8 @@ public class OdooModelCache {
         result.setFields(new HashMap<>());
 
         // retrieve model field infos
-        Object[] fieldIds = (Object[]) model.get(MODEL_FIELD_FIELD_IDS);
-        Object[] fields = (Object[]) client.executeXmlRpc(MODEL_NAME_MODEL_FIELDS, OPERATION_READ, singletonList(asList(fieldIds)));
+        int[] fieldIds = (int[]) model.get(MODEL_FIELD_FIELD_IDS);
+        Object[] fields = (Object[]) client.executeXmlRpc(MODEL_NAME_MODEL_FIELDS, OPERATION_READ, singletonList(fieldIds));
 
         for (Object fieldObj : fields) {
             Map<String, Object> field = (Map<String, Object>) fieldObj;
@@ -73,6 +71,7 @@ public class OdooModelCache {
             OdooField f = new OdooField();
             f.setModel(result);
             f.setName(fieldName);
+            f.setRequired(Boolean.TRUE.equals(field.get(MODEL_FIELD_FIELD_REQUIRED)));
 
             String fieldType = (String) field.get(MODEL_FIELD_FIELD_TYPE);
             OdooType type = OdooTypeMapping.map(fieldType);
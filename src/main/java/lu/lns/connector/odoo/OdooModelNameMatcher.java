@@ -5,6 +5,7 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Simple pattern matcher using a pattern from connector configuration. Supports comma-separated pattern list,
@@ -22,6 +23,13 @@ public class OdooModelNameMatcher {
         this.alwaysMatchEmptyPatterns = alwaysMatchEmptyPatterns;
     }
 
+    /**
+     * @return the model names of the patterns without wildcard
+     */
+    public List<String> getModelNames() {
+        return patterns.stream().filter(p -> !p.endsWith("*")).collect(Collectors.toList());
+    }
+
     /**
      * @return true if model name matches the configured pattern
      */
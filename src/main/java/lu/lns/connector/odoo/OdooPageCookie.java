@@ -0,0 +1,161 @@
+package lu.lns.connector.odoo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Paged results cookie of a search, see {@link org.identityconnectors.framework.common.objects.OperationOptions#getPagedResultsCookie()}.
+ * Holds the position of the next page and, if the records are sorted by fields allowing it, the values of the sort
+ * fields of the last record returned, ending with its id. The next page is then selected by comparing with these values
+ * (keyset pagination) instead of skipping the records before it by an offset, see
+ * {@link OdooSearch#continueAfter(List, List, List)}. A search restricted to a bucket by {@link Constants#OPTION_BUCKET}
+ * also keeps the id range of the bucket resolved for the first page, so all pages use the same range even if records
+ * are created or deleted meanwhile. Encoded as base64 of a JSON array of the position, the id range or null and the
+ * values.
+ */
+final class OdooPageCookie {
+
+    static final OdooPageCookie FIRST_PAGE = new OdooPageCookie(0, null, null);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final int position;
+    private final List<Integer> bucketRange;
+    private final List<Object> lastValues;
+
+    /**
+     * @param bucketRange see {@link #getBucketRange()}
+     * @param lastValues strings and numbers, null to use the position
+     */
+    OdooPageCookie(int position, List<Integer> bucketRange, List<Object> lastValues) {
+        this.position = position;
+        this.bucketRange = bucketRange;
+        this.lastValues = lastValues;
+    }
+
+    /**
+     * @return number of records before the next page
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the first (included) and the last (excluded) id of the bucket searched, either null if the bucket is open
+     * at that end, null if the search is not restricted to a bucket or the range is not resolved yet
+     */
+    List<Integer> getBucketRange() {
+        return bucketRange;
+    }
+
+    /**
+     * @param sortKeys number of sort keys including the id, which the cookie has to match
+     * @return the sort values of the last record returned, null if the next page is selected by its position
+     */
+    List<Object> getLastValues(int sortKeys) {
+        // null if sorted differently than the previous page
+        return lastValues != null && lastValues.size() == sortKeys ? lastValues : null;
+    }
+
+    static OdooPageCookie parse(String cookie) {
+        try (JsonParser parser = JSON_FACTORY.createParser(Base64.getUrlDecoder().decode(cookie))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                throw new ConnectorException("Invalid paged results cookie: " + cookie);
+            }
+            int position = parser.getIntValue();
+
+            List<Integer> bucketRange = null;
+            JsonToken rangeToken = parser.nextToken();
+            if (rangeToken == JsonToken.START_ARRAY) {
+                bucketRange = new ArrayList<>();
+                for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                    if (token != JsonToken.VALUE_NULL && token != JsonToken.VALUE_NUMBER_INT) {
+                        throw new ConnectorException("Invalid paged results cookie: " + cookie);
+                    }
+                    bucketRange.add(token == JsonToken.VALUE_NULL ? null : parser.getIntValue());
+                }
+                if (bucketRange.size() != 2) {
+                    throw new ConnectorException("Invalid paged results cookie: " + cookie);
+                }
+            }
+            else if (rangeToken != JsonToken.VALUE_NULL) {
+                throw new ConnectorException("Invalid paged results cookie: " + cookie);
+            }
+
+            List<Object> values = new ArrayList<>();
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    values.add(parser.getNumberValue());
+                }
+                else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    values.add(parser.getDoubleValue());
+                }
+                else if (token == JsonToken.VALUE_STRING) {
+                    values.add(parser.getText());
+                }
+                else {
+                    throw new ConnectorException("Invalid paged results cookie: " + cookie);
+                }
+            }
+
+            return new OdooPageCookie(position, bucketRange, values.isEmpty() ? null : values);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new ConnectorException("Invalid paged results cookie: " + cookie, e);
+        }
+    }
+
+    String encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartArray();
+            generator.writeNumber(position);
+            if (bucketRange != null) {
+                generator.writeStartArray();
+                for (Integer id : bucketRange) {
+                    if (id != null) {
+                        generator.writeNumber(id);
+                    }
+                    else {
+                        generator.writeNull();
+                    }
+                }
+                generator.writeEndArray();
+            }
+            else {
+                generator.writeNull();
+            }
+            if (lastValues != null) {
+                for (Object value : lastValues) {
+                    if (value instanceof Integer) {
+                        generator.writeNumber((Integer) value);
+                    }
+                    else if (value instanceof Long) {
+                        generator.writeNumber((Long) value);
+                    }
+                    else if (value instanceof Number) {
+                        generator.writeNumber(((Number) value).doubleValue());
+                    }
+                    else {
+                        generator.writeString(value.toString());
+                    }
+                }
+            }
+            generator.writeEndArray();
+        }
+        catch (IOException e) {
+            throw new ConnectorException("Unable to encode paged results cookie", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+
+}
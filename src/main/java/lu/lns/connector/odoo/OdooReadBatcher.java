@@ -0,0 +1,124 @@
+package lu.lns.connector.odoo;
+
+import lu.lns.connector.odoo.transport.Deadline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static lu.lns.connector.odoo.OdooConstants.*;
+
+/**
+ * Combines reads of single records by id, sent concurrently by several threads, into one "search_read" over all their
+ * ids. The first thread reading a record of a model starts a batch and waits for the batch window, the reads of other
+ * records of the model with the same fields meanwhile join the batch, and reads of the same record share its result.
+ * The first thread then reads the records for all of them. Batches are shared by all clients of the same odoo user, as
+ * connector instances are pooled and used by one thread at a time. A read started while no other read is in progress
+ * is sent at once, as it would wait for the window in vain.
+ * <p>
+ * A read only joins a batch which has not been sent yet, so it never gets a record read before the read started, e.g.
+ * before a write of the same thread. Threads waiting for the records read by another thread give up when the deadline
+ * of their own operation passes.
+ */
+final class OdooReadBatcher {
+
+    // by odoo URL, database and user name
+    private static final Map<String, OdooReadBatcher> BATCHERS = new ConcurrentHashMap<>();
+
+    // batches not sent yet, by model and fields
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    // reads waiting for their record, guarded by openBatches
+    private int activeReads;
+
+    private OdooReadBatcher() {
+    }
+
+    static OdooReadBatcher forSession(String sessionKey) {
+        return BATCHERS.computeIfAbsent(sessionKey, k -> new OdooReadBatcher());
+    }
+
+    /**
+     * @param window time in milliseconds to wait for other reads when starting a batch
+     * @return the record, null if not found
+     */
+    Map<String, Object> read(OdooClient client, String model, int id, List<String> fields, int window) {
+        String key = model + "|" + String.join(",", fields);
+        Batch batch;
+        boolean first = false;
+        boolean alone;
+        synchronized (openBatches) {
+            batch = openBatches.get(key);
+            if (batch == null || batch.ids.size() >= Constants.MAX_READ_BATCH_SIZE) {
+                batch = new Batch();
+                openBatches.put(key, batch);
+                first = true;
+            }
+            batch.ids.add(id);
+            alone = ++activeReads == 1;
+        }
+
+        try {
+            if (first) {
+                send(client, model, fields, alone ? 0 : window, key, batch);
+            }
+            // the batch may be read by another thread, so its records are awaited until the deadline of this one
+            return client.await(batch.records).get(id);
+        }
+        finally {
+            synchronized (openBatches) {
+                activeReads--;
+            }
+        }
+    }
+
+    private void send(OdooClient client, String model, List<String> fields, int window, String key, Batch batch) {
+        Deadline deadline = Deadline.current();
+        long wait = deadline != null ? Math.min(window, Math.max(0, deadline.remainingMillis())) : window;
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<Integer> ids;
+        synchronized (openBatches) {
+            openBatches.remove(key, batch);
+            ids = new ArrayList<>(batch.ids);
+        }
+
+        try {
+            Object[] results = (Object[]) client.executeXmlRpc(model, OPERATION_SEARCH_READ,
+                    singletonList(singletonList(asList(MODEL_FIELD_FIELD_NAME_ID, OPERATOR_IN, ids))),
+                    Map.of(OPERATION_PARAMETER_FIELDS, fields));
+
+            Map<Integer, Map<String, Object>> records = new HashMap<>();
+            for (Object result : results) {
+                Map<String, Object> record = (Map<String, Object>) result;
+                records.put((Integer) record.get(MODEL_FIELD_FIELD_NAME_ID), record);
+            }
+            batch.records.complete(records);
+        }
+        catch (RuntimeException e) {
+            batch.records.completeExceptionally(e);
+        }
+    }
+
+    private static final class Batch {
+
+        private final Set<Integer> ids = new LinkedHashSet<>();
+        private final CompletableFuture<Map<Integer, Map<String, Object>>> records = new CompletableFuture<>();
+
+    }
+
+}
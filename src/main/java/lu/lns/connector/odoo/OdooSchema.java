@@ -3,6 +3,7 @@ package lu.lns.connector.odoo;
 import lu.lns.connector.odoo.schema.type.OdooManyToOneType;
 import lu.lns.connector.odoo.schema.type.OdooType;
 import lu.lns.connector.odoo.schema.type.OdooTypeMapping;
+import lu.lns.connector.odoo.transport.RequestPriority;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.objects.AttributeInfo;
@@ -16,12 +17,17 @@ import org.identityconnectors.framework.common.objects.Uid;
 import org.identityconnectors.framework.spi.Connector;
 import org.identityconnectors.framework.spi.operations.SearchOp;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -52,7 +58,8 @@ public class OdooSchema {
      * @return odoo model and fields translated into connId schema
      */
     public Schema fetch(Class<? extends Connector> connectorClass) {
-        return client.executeOperationWithAuthentication(() -> doFetch(connectorClass));
+        // many calls fetching all models and fields, should not delay provisioning
+        return client.executeOperationWithAuthentication(RequestPriority.BULK, () -> doFetch(connectorClass));
     }
 
     private Schema doFetch(Class<? extends Connector> connectorClass) {
@@ -65,25 +72,36 @@ public class OdooSchema {
                 Map.of(OdooConstants.OPERATION_PARAMETER_FIELDS, asList(OdooConstants.MODEL_FIELD_MODEL, OdooConstants.MODEL_FIELD_FIELD_IDS, OdooConstants.MODEL_FIELD_NAME)));
         Set<String> unmappedTypes = new HashSet<>();
 
-        for (Object modelObj : models) {
-            Map<String, Object> model = (Map<String, Object>) modelObj;
+        // as per configuration some models are not relevant to the connector user
+        List<Map<String, Object>> relevantModels = Arrays.stream(models)
+                .map(modelObj -> (Map<String, Object>) modelObj)
+                .filter(model -> retrieveModelsMatcher.matches((String) model.get(OdooConstants.MODEL_FIELD_MODEL)))
+                .collect(Collectors.toList());
+
+        // fetch field infos of all models concurrently, and as soon as they arrive those of their expanded relations, once
+        // per related model
+        Map<String, CompletableFuture<Object>> relatedFieldRequests = new ConcurrentHashMap<>();
+        List<CompletableFuture<Object>> fieldRequests = relevantModels.stream()
+                .map(model -> client.thenCompose(client.executeXmlRpcAsync(OdooConstants.MODEL_NAME_MODEL_FIELDS,
+                        OdooConstants.OPERATION_READ, singletonList(model.get(OdooConstants.MODEL_FIELD_FIELD_IDS))), fields -> {
+                    prefetchExpandedFields((String) model.get(OdooConstants.MODEL_FIELD_MODEL), (Object[]) fields, relatedFieldRequests);
+                    return CompletableFuture.completedFuture(fields);
+                }))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < relevantModels.size(); i++) {
+            Map<String, Object> model = relevantModels.get(i);
             String modelName = (String) model.get(OdooConstants.MODEL_FIELD_MODEL);
 
-            if (!retrieveModelsMatcher.matches(modelName)) {
-                // as per configuration this model is not relevant to the connector user
-                continue;
-            }
-
             ObjectClassInfoBuilder ocib = new ObjectClassInfoBuilder();
             ocib.setType(modelName);
 
-            // fetch field infos
-            Object[] fieldIds = (Object[]) model.get(OdooConstants.MODEL_FIELD_FIELD_IDS);
-            Object[] fields = (Object[]) client.executeXmlRpc(OdooConstants.MODEL_NAME_MODEL_FIELDS, OdooConstants.OPERATION_READ, singletonList(asList(fieldIds)));
+            int[] fieldIds = (int[]) model.get(OdooConstants.MODEL_FIELD_FIELD_IDS);
+            Object[] fields = (Object[]) client.await(fieldRequests.get(i));
 
             for (Object fieldObj : fields) {
                 Map<String, Object> field = (Map<String, Object>) fieldObj;
-                ocib.addAllAttributeInfo(buildFieldSchema(modelName, "", field, unmappedTypes));
+                ocib.addAllAttributeInfo(buildFieldSchema(modelName, "", field, unmappedTypes, relatedFieldRequests));
             }
 
             ocib.addAttributeInfo(buildIdAttribute(Uid.NAME));
@@ -101,6 +119,10 @@ public class OdooSchema {
         sb.defineOperationOption(OperationOptionInfoBuilder.buildPageSize(), SearchOp.class);
         sb.defineOperationOption(OperationOptionInfoBuilder.buildPagedResultsOffset(), SearchOp.class);
         sb.defineOperationOption(OperationOptionInfoBuilder.buildSortKeys(), SearchOp.class);
+        sb.defineOperationOption(OperationOptionInfoBuilder.buildPagedResultsCookie(), SearchOp.class);
+        sb.defineOperationOption(OperationOptionInfoBuilder.build(Constants.OPTION_ID_FROM, Integer.class), SearchOp.class);
+        sb.defineOperationOption(OperationOptionInfoBuilder.build(Constants.OPTION_ID_TO, Integer.class), SearchOp.class);
+        sb.defineOperationOption(OperationOptionInfoBuilder.build(Constants.OPTION_BUCKET, String.class), SearchOp.class);
 
         LOG.ok("Models: {0}", models.length);
         LOG.ok("---- Fetching schema end ----");
@@ -109,7 +131,7 @@ public class OdooSchema {
     }
 
     private Collection<AttributeInfo> buildFieldSchema(String modelName, String fieldPath, Map<String, Object> field,
-            Set<String> unmappedTypes) {
+            Set<String> unmappedTypes, Map<String, CompletableFuture<Object>> relatedFieldRequests) {
 
         Collection<AttributeInfo> result = new LinkedList<>();
 
@@ -150,38 +172,61 @@ public class OdooSchema {
         if (fieldPath.isEmpty()) {
             String relationPath = modelName + Constants.MODEL_FIELD_SEPARATOR + field.get(OdooConstants.MODEL_FIELD_FIELD_NAME);
             if (expandRelationsMatcher.matches(relationPath) && mappedType instanceof OdooManyToOneType) {
-                result.addAll(expandField(field, unmappedTypes));
+                result.addAll(expandField(field, unmappedTypes, relatedFieldRequests));
             }
         }
 
         return result;
     }
 
-    private Collection<AttributeInfo> expandField(Map<String, Object> field, Set<String> unmappedTypes) {
+    private Collection<AttributeInfo> expandField(Map<String, Object> field, Set<String> unmappedTypes,
+            Map<String, CompletableFuture<Object>> relatedFieldRequests) {
+
         Collection<AttributeInfo> result = new LinkedList<>();
         String relatedModel = (String) field.get(OdooConstants.MODEL_FIELD_FIELD_MANY2ONE_RELATED_MODEL);
 
-        // retrieve model info
-        Object[] models = (Object[]) client.executeXmlRpc(OdooConstants.MODEL_NAME_MODELS, OdooConstants.OPERATION_SEARCH_READ,
-                singletonList(singletonList(asList(OdooConstants.MODEL_FIELD_MODEL, OdooConstants.OPERATOR_EQUALS, relatedModel))),
-                Map.of(OdooConstants.OPERATION_PARAMETER_FIELDS, asList(OdooConstants.MODEL_FIELD_MODEL, OdooConstants.MODEL_FIELD_FIELD_IDS)));
+        // usually requested already by prefetchExpandedFields
+        Object[] fields = (Object[]) client.await(relatedFieldRequests.computeIfAbsent(relatedModel, this::fetchFieldsAsync));
 
-        if (models.length != 1) {
-            throw new ConnectorException("Unable to retrieve odoo model '" + relatedModel + "'");
+        for (Object fieldObj : fields) {
+            Map<String, Object> relatedField = (Map<String, Object>) fieldObj;
+            result.addAll(buildFieldSchema(relatedModel, (String) field.get(OdooConstants.MODEL_FIELD_FIELD_NAME), relatedField, unmappedTypes,
+                    relatedFieldRequests));
         }
 
-        Map<String, Object> model = (Map<String, Object>) models[0];
-
-        // retrieve fields info
-        Object[] fieldIds = (Object[]) model.get(OdooConstants.MODEL_FIELD_FIELD_IDS);
-        Object[] fields = (Object[]) client.executeXmlRpc(OdooConstants.MODEL_NAME_MODEL_FIELDS, OdooConstants.OPERATION_READ, singletonList(asList(fieldIds)));
+        return result;
+    }
 
+    /**
+     * Requests the field infos of the models related by the given fields if they are expanded.
+     */
+    private void prefetchExpandedFields(String modelName, Object[] fields, Map<String, CompletableFuture<Object>> relatedFieldRequests) {
         for (Object fieldObj : fields) {
-            Map<String, Object> relatedField = (Map<String, Object>) fieldObj;
-            result.addAll(buildFieldSchema(relatedModel, (String) field.get(OdooConstants.MODEL_FIELD_FIELD_NAME), relatedField, unmappedTypes));
+            Map<String, Object> field = (Map<String, Object>) fieldObj;
+            String relationPath = modelName + Constants.MODEL_FIELD_SEPARATOR + field.get(OdooConstants.MODEL_FIELD_FIELD_NAME);
+            if (expandRelationsMatcher.matches(relationPath)
+                    && OdooTypeMapping.map((String) field.get(OdooConstants.MODEL_FIELD_FIELD_TYPE)) instanceof OdooManyToOneType) {
+                relatedFieldRequests.computeIfAbsent((String) field.get(OdooConstants.MODEL_FIELD_FIELD_MANY2ONE_RELATED_MODEL),
+                        this::fetchFieldsAsync);
+            }
         }
+    }
 
-        return result;
+    private CompletableFuture<Object> fetchFieldsAsync(String relatedModel) {
+        // retrieve model info
+        CompletableFuture<Object> models = client.executeXmlRpcAsync(OdooConstants.MODEL_NAME_MODELS, OdooConstants.OPERATION_SEARCH_READ,
+                singletonList(singletonList(asList(OdooConstants.MODEL_FIELD_MODEL, OdooConstants.OPERATOR_EQUALS, relatedModel))),
+                Map.of(OdooConstants.OPERATION_PARAMETER_FIELDS, asList(OdooConstants.MODEL_FIELD_MODEL, OdooConstants.MODEL_FIELD_FIELD_IDS)));
+
+        // retrieve fields info
+        return client.thenCompose(models, result -> {
+            if (((Object[]) result).length != 1) {
+                throw new ConnectorException("Unable to retrieve odoo model '" + relatedModel + "'");
+            }
+            Map<String, Object> model = (Map<String, Object>) ((Object[]) result)[0];
+            return client.executeXmlRpcAsync(OdooConstants.MODEL_NAME_MODEL_FIELDS, OdooConstants.OPERATION_READ,
+                    singletonList(model.get(OdooConstants.MODEL_FIELD_FIELD_IDS)));
+        });
     }
 
     private AttributeInfo buildIdAttribute(String name) {
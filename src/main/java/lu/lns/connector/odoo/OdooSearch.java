@@ -2,14 +2,28 @@ package lu.lns.connector.odoo;
 
 import lu.lns.connector.odoo.schema.OdooField;
 import lu.lns.connector.odoo.schema.OdooModel;
+import lu.lns.connector.odoo.schema.type.OdooCharType;
+import lu.lns.connector.odoo.schema.type.OdooDateTimeType;
+import lu.lns.connector.odoo.schema.type.OdooDateType;
+import lu.lns.connector.odoo.schema.type.OdooFloatType;
+import lu.lns.connector.odoo.schema.type.OdooIntegerType;
 import lu.lns.connector.odoo.schema.type.OdooManyToOneType;
+import lu.lns.connector.odoo.schema.type.OdooSelectionType;
+import lu.lns.connector.odoo.schema.type.OdooType;
+import lu.lns.connector.odoo.transport.OdooProtocol;
+import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+import org.identityconnectors.framework.common.exceptions.OperationTimeoutException;
 import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
 import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
 import org.identityconnectors.framework.common.objects.Name;
 import org.identityconnectors.framework.common.objects.ObjectClass;
 import org.identityconnectors.framework.common.objects.OperationOptions;
 import org.identityconnectors.framework.common.objects.ResultsHandler;
+import org.identityconnectors.framework.common.objects.SearchResult;
 import org.identityconnectors.framework.common.objects.SortKey;
 import org.identityconnectors.framework.common.objects.Uid;
 import org.identityconnectors.framework.common.objects.filter.AndFilter;
@@ -26,15 +40,22 @@ import org.identityconnectors.framework.common.objects.filter.LessThanOrEqualFil
 import org.identityconnectors.framework.common.objects.filter.NotFilter;
 import org.identityconnectors.framework.common.objects.filter.OrFilter;
 import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
+import org.identityconnectors.framework.spi.SearchResultsHandler;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -48,6 +69,8 @@ import static lu.lns.connector.odoo.OdooConstants.*;
  */
 public class OdooSearch {
 
+    private static final Log LOG = Log.getLog(OdooSearch.class);
+
     private static Map<Class<? extends AttributeFilter>, String> attributeFilterClassToOperatorMap = Map.of(
             EqualsFilter.class, OPERATOR_EQUALS,
             GreaterThanFilter.class, OPERATOR_GREATER,
@@ -61,12 +84,23 @@ public class OdooSearch {
             OrFilter.class, OPERATOR_OR
     );
 
+    // index and number of buckets, e.g. "2/8"
+    private static final Pattern BUCKET_PATTERN = Pattern.compile("(\\d+)\\s*/\\s*(\\d+)");
+
+    private static final List<SortKey> ID_SORT_KEYS = singletonList(new SortKey(MODEL_FIELD_FIELD_NAME_ID, true));
+
+    // types of fields whose values are compared in the same order as they are sorted by odoo
+    private static final Set<Class<? extends OdooType>> KEYSET_FIELD_TYPES = Set.of(OdooCharType.class, OdooIntegerType.class,
+            OdooFloatType.class, OdooDateType.class, OdooDateTimeType.class, OdooSelectionType.class);
+
     private OdooClient client;
     private OdooModelCache cache;
+    private OdooConfiguration configuration;
 
-    public OdooSearch(OdooClient client, OdooModelCache cache) {
+    public OdooSearch(OdooClient client, OdooModelCache cache, OdooConfiguration configuration) {
         this.client = client;
         this.cache = cache;
+        this.configuration = configuration;
     }
 
     /**
@@ -77,34 +111,535 @@ public class OdooSearch {
         // prepare
         Map<String, Object> params = prepareQueryParameters(model, options);
         List<Object> filter = query == null ? emptyList() : singletonList(translateFilter(model, query));
+        OdooPageCookie cookie = options.getPagedResultsCookie() == null ? OdooPageCookie.FIRST_PAGE
+                : OdooPageCookie.parse(options.getPagedResultsCookie());
+        List<Integer> bucketRange = getBucketRange(model, options, cookie);
+        List<Object> sliceFilter = restrictToSlice(filter, options, bucketRange);
+        boolean sliced = sliceFilter != filter;
+        filter = sliceFilter;
 
         boolean attributesToGetContainExpandedRelation = Arrays.stream(
                 Objects.requireNonNullElse(options.getAttributesToGet(), new String[0]))
                 .anyMatch(a -> a.contains(Constants.MODEL_FIELD_SEPARATOR));
 
-        // execute search in odoo
-        Object[] results = (Object[]) client.executeXmlRpc(model.getName(), OPERATION_SEARCH_READ, filter, params);
+        OdooProtocol.ElementHandler recordHandler = resultObj -> handler.handle(
+                buildConnectorObject(model, options, (Map<String, Object>) resultObj, attributesToGetContainExpandedRelation, null));
+
+        if (isUidLookup(query)) {
+            // read the record with its related records in one call if the odoo version allows it
+            OdooCapabilities capabilities = attributesToGetContainExpandedRelation ? client.getCapabilities() : null;
+            if (capabilities != null && capabilities.isNestedReadSupported()) {
+                Map<String, List<String>> expandedRelations = getExpandedRelations(model, options);
+                try {
+                    searchNested(model, filter, params, expandedRelations, handler, options);
+                    return;
+                }
+                catch (ConnectorIOException | OperationTimeoutException e) {
+                    throw e;
+                }
+                catch (ConnectorException e) {
+                    // rejected by odoo, e.g. restricted
+                    capabilities.disableNestedRead(e);
+                }
+            }
+
+            // without paging, sorting and slice the read may be combined with concurrent reads of other records
+            Object id = model.getField(MODEL_FIELD_FIELD_NAME_ID).getType()
+                    .mapToOdooSearchFilterValue(AttributeUtil.getSingleValue(((EqualsFilter) query).getAttribute()));
+            if (params.size() == 1 && id instanceof Integer && !sliced) {
+                Map<String, Object> record = client.readById(model.getName(), (Integer) id,
+                        (List<String>) params.get(OPERATION_PARAMETER_FIELDS));
+                if (record != null) {
+                    recordHandler.handle(record);
+                }
+                return;
+            }
+
+            // at most one record, so nothing to stream, and reading it in one call allows hedging the call
+            Object[] results = (Object[]) client.executeXmlRpc(model.getName(), OPERATION_SEARCH_READ, filter, params);
+            for (Object result : results) {
+                if (!recordHandler.handle(result)) {
+                    break;
+                }
+            }
+            return;
+        }
+
+        // pages after the first are selected by the cookie of the previous page
+        Integer offset = options.getPagedResultsOffset();
+        if (params.containsKey(OPERATION_PARAMETER_LIMIT) && (options.getPagedResultsCookie() != null || offset == null || offset <= 1)) {
+            searchPage(model, filter, params, recordHandler, handler, options, cookie, bucketRange);
+            return;
+        }
+
+        // without paging and sorting other than by id, large results are read in chunks
+        Object order = params.get(OPERATION_PARAMETER_ORDER);
+        if (configuration.getSearchChunkSize() > 0 && !params.containsKey(OPERATION_PARAMETER_LIMIT)
+                && (order == null || order.equals(MODEL_FIELD_FIELD_NAME_ID))) {
+            if (configuration.getSearchParallelism() > 1) {
+                // records sorted by uid on request
+                searchPartitioned(model, filter, params, recordHandler, configuration.getSearchChunkSize(),
+                        configuration.getSearchParallelism(), configuration.isSearchPreserveOrder() || order != null);
+            }
+            else {
+                searchChunked(model, filter, params, recordHandler, configuration.getSearchChunkSize());
+            }
+            return;
+        }
+
+        // execute search in odoo, records are handled while the rest of the result is still being received unless
+        // reading their expanded relations needs further calls
+        client.executeXmlRpcStreaming(recordHandler, attributesToGetContainExpandedRelation, model.getName(), OPERATION_SEARCH_READ,
+                filter, params);
+    }
+
+    /**
+     * @param relatedRecords the related records of expanded relations by relation field, null to read them separately
+     */
+    private ConnectorObject buildConnectorObject(OdooModel model, OperationOptions options, Map<String, Object> result,
+            boolean expandRelations, Map<String, Map<String, Object>> relatedRecords) {
+        ConnectorObjectBuilder connObj = new ConnectorObjectBuilder();
+        String id = Integer.toString((int) result.get(MODEL_FIELD_FIELD_NAME_ID));
+        connObj.setUid(id);
+        connObj.setName(id);
+        connObj.setObjectClass(new ObjectClass(model.getName()));
+
+        for (var entry : result.entrySet()) {
+            mapResultField(model, "", entry, connObj);
+        }
+
+        if (expandRelations) {
+            queryExpandedRelations(model, options, result, connObj, relatedRecords);
+        }
+
+        return connObj.build();
+    }
+
+    /**
+     * Reads the records together with the related records of expanded relations by "web_search_read" with a
+     * specification, available since odoo 17, instead of one more call per related record.
+     */
+    private void searchNested(OdooModel model, List<Object> filter, Map<String, Object> params,
+            Map<String, List<String>> expandedRelations, ResultsHandler handler, OperationOptions options) {
+        Map<String, Object> specification = new HashMap<>();
+        for (Object field : (List<?>) params.get(OPERATION_PARAMETER_FIELDS)) {
+            specification.put((String) field, Collections.emptyMap());
+        }
+        for (var entry : expandedRelations.entrySet()) {
+            Map<String, Object> relatedSpecification = new HashMap<>();
+            entry.getValue().forEach(f -> relatedSpecification.put(f, Collections.emptyMap()));
+            specification.put(entry.getKey(), Map.of(OPERATION_PARAMETER_FIELDS, relatedSpecification));
+        }
+
+        Map<String, Object> kwargs = new HashMap<>(params);
+        kwargs.remove(OPERATION_PARAMETER_FIELDS);
+        kwargs.put(OPERATION_PARAMETER_SPECIFICATION, specification);
+
+        Map<String, Object> result = (Map<String, Object>) client.executeXmlRpc(model.getName(), OPERATION_WEB_SEARCH_READ,
+                filter, kwargs);
+        Object records = result.get(OPERATION_RESULT_RECORDS);
+        if (!(records instanceof Object[])) {
+            // nothing found, an empty array is read like the ids of a relation
+            return;
+        }
+        for (Object resultObj : (Object[]) records) {
+            Map<String, Object> record = (Map<String, Object>) resultObj;
+
+            // related records are replaced by their id as returned by "search_read"
+            Map<String, Map<String, Object>> relatedRecords = new HashMap<>();
+            for (String relation : expandedRelations.keySet()) {
+                if (record.get(relation) instanceof Map) {
+                    Map<String, Object> relatedRecord = (Map<String, Object>) record.get(relation);
+                    OdooField field = model.getField(relation);
+                    normalizeNestedRecord(cache.getModel(((OdooManyToOneType) field.getType()).getRelatedModel()), relatedRecord);
+                    relatedRecords.put(relation, relatedRecord);
+                }
+            }
+            normalizeNestedRecord(model, record);
+
+            if (!handler.handle(buildConnectorObject(model, options, record, true, relatedRecords))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Converts the many2one values of a record read with a specification, the id or a nested record, to the pair of id
+     * and name returned by "search_read", without the name unless read.
+     */
+    private static void normalizeNestedRecord(OdooModel model, Map<String, Object> record) {
+        for (var entry : record.entrySet()) {
+            if (!model.hasField(entry.getKey()) || !(model.getField(entry.getKey()).getType() instanceof OdooManyToOneType)) {
+                continue;
+            }
+
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                Map<?, ?> related = (Map<?, ?>) value;
+                entry.setValue(new Object[] { related.get(MODEL_FIELD_FIELD_NAME_ID), related.get(MODEL_FIELD_FIELD_NAME_DISPLAY_NAME) });
+            }
+            else if (value instanceof Integer) {
+                entry.setValue(new Object[] { value });
+            }
+        }
+    }
+
+    /**
+     * Reads the records ordered by id in chunks, each one continuing after the last id of the previous chunk, so records
+     * created or deleted meanwhile do not shift the chunks as with an offset. The next chunk is requested before the
+     * records of the current one are handled, so at most two chunks are held in memory.
+     */
+    private void searchChunked(OdooModel model, List<Object> filter, Map<String, Object> params,
+            OdooProtocol.ElementHandler recordHandler, int chunkSize) {
+        Map<String, Object> chunkParams = new HashMap<>(params);
+        chunkParams.put(OPERATION_PARAMETER_LIMIT, chunkSize);
+        chunkParams.put(OPERATION_PARAMETER_ORDER, MODEL_FIELD_FIELD_NAME_ID);
+
+        CompletableFuture<Object> chunk = client.executeXmlRpcAsync(model.getName(), OPERATION_SEARCH_READ, filter, chunkParams);
+        try {
+            while (chunk != null) {
+                Object[] records = (Object[]) client.await(chunk);
+                chunk = null;
+                if (records.length == chunkSize) {
+                    int lastId = (int) ((Map<String, Object>) records[records.length - 1]).get(MODEL_FIELD_FIELD_NAME_ID);
+                    chunk = client.executeXmlRpcAsync(model.getName(), OPERATION_SEARCH_READ,
+                            continueAfter(filter, ID_SORT_KEYS, singletonList(lastId)), chunkParams);
+                }
+
+                for (Object record : records) {
+                    if (!recordHandler.handle(record)) {
+                        return;
+                    }
+                }
+            }
+        }
+        finally {
+            if (chunk != null) {
+                // the records of the chunk requested ahead are not needed
+                chunk.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the records in ranges of ids, several ranges concurrently, so that a full search scales with the number of
+     * odoo workers. The ranges split the ids between the lowest and the highest id matching the query, which are
+     * determined first, into ranges of the chunk size. At most as many ranges as the parallelism are read ahead of the
+     * records being handled, and they are handled in the order of the ids or as they arrive.
+     */
+    private void searchPartitioned(OdooModel model, List<Object> filter, Map<String, Object> params,
+            OdooProtocol.ElementHandler recordHandler, int rangeSize, int parallelism, boolean preserveOrder) {
+        // "search" requires a domain, unlike "search_read"
+        List<Object> domain = filter.isEmpty() ? singletonList(emptyList()) : filter;
+        CompletableFuture<Object> lowest = client.executeXmlRpcAsync(model.getName(), OPERATION_SEARCH, domain,
+                Map.of(OPERATION_PARAMETER_LIMIT, 1, OPERATION_PARAMETER_ORDER, MODEL_FIELD_FIELD_NAME_ID));
+        CompletableFuture<Object> highest = client.executeXmlRpcAsync(model.getName(), OPERATION_SEARCH, domain,
+                Map.of(OPERATION_PARAMETER_LIMIT, 1, OPERATION_PARAMETER_ORDER, MODEL_FIELD_FIELD_NAME_ID + " desc"));
+        Integer minId = getFirstId(client.await(lowest));
+        Integer maxId = getFirstId(client.await(highest));
+        if (minId == null || maxId == null) {
+            return;
+        }
+
+        Map<String, Object> rangeParams = new HashMap<>(params);
+        rangeParams.put(OPERATION_PARAMETER_ORDER, MODEL_FIELD_FIELD_NAME_ID);
+
+        Deque<CompletableFuture<Object>> ranges = new ArrayDeque<>();
+        long nextId = minId;
+        try {
+            while (true) {
+                while (ranges.size() < parallelism && nextId <= maxId) {
+                    int lastId = (int) Math.min(nextId + rangeSize - 1, maxId);
+                    ranges.add(client.executeXmlRpcAsync(model.getName(), OPERATION_SEARCH_READ,
+                            inRange(filter, (int) nextId, lastId), rangeParams));
+                    nextId = lastId + 1L;
+                }
+                if (ranges.isEmpty()) {
+                    return;
+                }
+
+                CompletableFuture<Object> range = ranges.getFirst();
+                if (!preserveOrder) {
+                    client.await(CompletableFuture.anyOf(ranges.toArray(new CompletableFuture<?>[0])));
+                    range = ranges.stream().filter(CompletableFuture::isDone).findFirst().orElse(range);
+                }
+                Object[] records = (Object[]) client.await(range);
+                ranges.remove(range);
+
+                for (Object record : records) {
+                    if (!recordHandler.handle(record)) {
+                        return;
+                    }
+                }
+            }
+        }
+        finally {
+            // the records of the ranges requested ahead are not needed after a failure or when the handler stopped
+            ranges.forEach(range -> range.cancel(false));
+        }
+    }
+
+    private static Integer getFirstId(Object ids) {
+        if (ids instanceof int[]) {
+            return ((int[]) ids).length > 0 ? ((int[]) ids)[0] : null;
+        }
+        return ((Object[]) ids).length > 0 ? (Integer) ((Object[]) ids)[0] : null;
+    }
+
+    /**
+     * @return the search filter restricted to records with ids in the given range, both ends included
+     */
+    private static List<Object> inRange(List<Object> filter, int firstId, int lastId) {
+        // the terms of a domain are combined by "and"
+        List<Object> domain = filter.isEmpty() ? new ArrayList<>() : new ArrayList<>((List<?>) filter.get(0));
+        domain.add(asList(MODEL_FIELD_FIELD_NAME_ID, OPERATOR_GREATER_EQUALS, firstId));
+        domain.add(asList(MODEL_FIELD_FIELD_NAME_ID, OPERATOR_SMALLER_EQUALS, lastId));
+        return singletonList(domain);
+    }
+
+    /**
+     * @return the first (included) and the last (excluded) id of the bucket selected by {@link Constants#OPTION_BUCKET},
+     * either null if the bucket is open at that end, null without the option. The range is taken from the boundaries
+     * shared by all buckets of the model for the first page, see {@link OdooBucketBoundaries}, and from the cookie for the
+     * following pages, so neither the buckets nor the pages of a bucket overlap or leave gaps when records are created or
+     * deleted meanwhile.
+     */
+    private List<Integer> getBucketRange(OdooModel model, OperationOptions options, OdooPageCookie cookie) {
+        Object bucket = options.getOptions().get(Constants.OPTION_BUCKET);
+        if (bucket == null) {
+            return null;
+        }
+        Matcher matcher = BUCKET_PATTERN.matcher(bucket.toString().trim());
+        int index = matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+        int count = matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+        if (index < 1 || index > count) {
+            throw new ConnectorException("Invalid bucket, expected index/count like 2/8: " + bucket);
+        }
+        OdooBucketBoundaries bucketBoundaries = OdooBucketBoundaries.forSession(client.getSessionKey());
+        if (cookie.getBucketRange() != null) {
+            bucketBoundaries.touch(model.getName(), count);
+            return cookie.getBucketRange();
+        }
+
+        // the bucket lies between the boundaries before and after it, the first and the last bucket are open
+        Integer fromId = null;
+        Integer toId = null;
+        if (count > 1) {
+            int[] boundaries = bucketBoundaries.get(model.getName(), count, () -> getBoundaries(model, count));
+            if (index > 1) {
+                fromId = boundaries[index - 2];
+            }
+            if (index < count) {
+                toId = boundaries[index - 1];
+            }
+        }
+        LOG.ok("Bucket {0} of model {1}: ids from {2} to {3}", bucket, model.getName(), fromId, toId);
+        return Arrays.asList(fromId, toId);
+    }
+
+    /**
+     * @param bucketRange see {@link #getBucketRange(OdooModel, OperationOptions, OdooPageCookie)}
+     * @return the search filter restricted to the ids selected by the options {@link Constants#OPTION_ID_FROM},
+     * {@link Constants#OPTION_ID_TO} and {@link Constants#OPTION_BUCKET}, unchanged without them
+     */
+    private static List<Object> restrictToSlice(List<Object> filter, OperationOptions options, List<Integer> bucketRange) {
+        Map<String, Object> optionValues = options.getOptions();
+        Integer fromId = toId(optionValues.get(Constants.OPTION_ID_FROM));
+        Integer toId = toId(optionValues.get(Constants.OPTION_ID_TO));
+        if (bucketRange != null && bucketRange.get(0) != null) {
+            fromId = max(fromId, bucketRange.get(0));
+        }
+        if (bucketRange != null && bucketRange.get(1) != null) {
+            toId = min(toId, bucketRange.get(1));
+        }
+
+        if (fromId == null && toId == null) {
+            return filter;
+        }
+        // the terms of a domain are combined by "and"
+        List<Object> domain = filter.isEmpty() ? new ArrayList<>() : new ArrayList<>((List<?>) filter.get(0));
+        if (fromId != null) {
+            domain.add(asList(MODEL_FIELD_FIELD_NAME_ID, OPERATOR_GREATER_EQUALS, fromId));
+        }
+        if (toId != null) {
+            domain.add(asList(MODEL_FIELD_FIELD_NAME_ID, OPERATOR_SMALLER, toId));
+        }
+        return singletonList(domain);
+    }
 
-        // inspect result
-        for (Object resultObj : results) {
-            Map<String, Object> result = (Map<String, Object>) resultObj;
+    private static Integer toId(Object value) {
+        if (value == null || value instanceof Integer) {
+            return (Integer) value;
+        }
+        try {
+            return value instanceof Number ? Math.toIntExact(((Number) value).longValue()) : Integer.valueOf(value.toString().trim());
+        }
+        catch (ArithmeticException | NumberFormatException e) {
+            throw new ConnectorException("Invalid id: " + value, e);
+        }
+    }
 
-            ConnectorObjectBuilder connObj = new ConnectorObjectBuilder();
-            String id = Integer.toString((int) result.get(MODEL_FIELD_FIELD_NAME_ID));
-            connObj.setUid(id);
-            connObj.setName(id);
-            connObj.setObjectClass(new ObjectClass(model.getName()));
+    private static Integer max(Integer id, int other) {
+        return id == null ? other : Math.max(id, other);
+    }
 
-            for (var entry : result.entrySet()) {
-                mapResultField(model, "", entry, connObj);
+    private static Integer min(Integer id, int other) {
+        return id == null ? other : Math.min(id, other);
+    }
+
+    /**
+     * Determines boundaries splitting the records of the model into buckets of about the same number of records. Costs a
+     * "search_count" and a "search" reading a single id per boundary, sent concurrently, as odoo has no aggregate for
+     * quantiles of the ids. The single-id searches skip the records before the boundary, so they are done once for all
+     * buckets, see {@link OdooBucketBoundaries}, not per bucket or page.
+     *
+     * @param count number of buckets
+     * @return the count - 1 boundaries, ascending, the lowest id of the second bucket being the first; the first bucket
+     * starts with the lowest id and the last ends with the highest; boundaries of empty buckets are
+     * {@link Integer#MAX_VALUE}
+     */
+    private int[] getBoundaries(OdooModel model, int count) {
+        // "search_count" and "search" require a domain, unlike "search_read"
+        List<Object> domain = singletonList(emptyList());
+        int total = (int) client.executeXmlRpc(model.getName(), OPERATION_SEARCH_COUNT, domain);
+
+        List<CompletableFuture<Object>> requests = new ArrayList<>();
+        for (int k = 1; k < count && total > 0; k++) {
+            int position = (int) ((long) total * k / count);
+            requests.add(client.executeXmlRpcAsync(model.getName(), OPERATION_SEARCH, domain, Map.of(OPERATION_PARAMETER_OFFSET,
+                    position, OPERATION_PARAMETER_LIMIT, 1, OPERATION_PARAMETER_ORDER, MODEL_FIELD_FIELD_NAME_ID)));
+        }
+
+        int[] boundaries = new int[count - 1];
+        Arrays.fill(boundaries, Integer.MAX_VALUE);
+        for (int i = 0; i < requests.size(); i++) {
+            Integer id = getFirstId(client.await(requests.get(i)));
+            if (id != null) {
+                boundaries[i] = id;
             }
+        }
+        LOG.ok("Bucket boundaries of model {0} for {1} buckets: {2}", model.getName(), count, Arrays.toString(boundaries));
+        return boundaries;
+    }
 
-            if (attributesToGetContainExpandedRelation) {
-                queryExpandedRelations(model, options, result, connObj);
+    /**
+     * Reads a page of records and passes the cookie for the next page to the handler if it is a
+     * {@link SearchResultsHandler}. The records are sorted by id after the requested sort keys, and the next page is
+     * selected by the values of the sort keys of the last record if all sort fields are required and have a comparable
+     * type, so that a page costs the same wherever it is and records created or deleted meanwhile do not shift the
+     * pages. Otherwise the cookie holds the offset of the next page.
+     */
+    private void searchPage(OdooModel model, List<Object> filter, Map<String, Object> params,
+            OdooProtocol.ElementHandler recordHandler, ResultsHandler handler, OperationOptions options, OdooPageCookie cookie,
+            List<Integer> bucketRange) {
+        // the id makes the order unique, sort keys after it do not matter
+        List<SortKey> sortKeys = new ArrayList<>();
+        for (SortKey sortKey : getSortKeys(model, options)) {
+            sortKeys.add(sortKey);
+            if (sortKey.getField().equals(MODEL_FIELD_FIELD_NAME_ID)) {
+                break;
             }
+        }
+        if (sortKeys.isEmpty() || !sortKeys.get(sortKeys.size() - 1).getField().equals(MODEL_FIELD_FIELD_NAME_ID)) {
+            sortKeys.add(new SortKey(MODEL_FIELD_FIELD_NAME_ID, true));
+        }
+        boolean keyset = sortKeys.stream().allMatch(sortKey -> isKeysetField(model, sortKey.getField()));
+
+        Map<String, Object> pageParams = new HashMap<>(params);
+        pageParams.put(OPERATION_PARAMETER_ORDER, formatOrder(sortKeys));
+        List<Object> pageFilter = filter;
+        if (keyset && cookie.getLastValues(sortKeys.size()) != null) {
+            pageParams.remove(OPERATION_PARAMETER_OFFSET);
+            pageFilter = continueAfter(filter, sortKeys, cookie.getLastValues(sortKeys.size()));
+        }
+        else {
+            pageParams.put(OPERATION_PARAMETER_OFFSET, cookie.getPosition());
+        }
+
+        // the values of the sort fields are needed for the cookie, but not returned unless requested
+        List<String> fields = (List<String>) params.get(OPERATION_PARAMETER_FIELDS);
+        List<String> sortFields = new ArrayList<>();
+        if (keyset && !fields.isEmpty()) {
+            sortKeys.stream().map(SortKey::getField)
+                    .filter(field -> !field.equals(MODEL_FIELD_FIELD_NAME_ID) && !fields.contains(field))
+                    .forEach(sortFields::add);
+            List<String> pageFields = new ArrayList<>(fields);
+            pageFields.addAll(sortFields);
+            pageParams.put(OPERATION_PARAMETER_FIELDS, pageFields);
+        }
+
+        int pageSize = (int) params.get(OPERATION_PARAMETER_LIMIT);
+        Object[] records = (Object[]) client.executeXmlRpc(model.getName(), OPERATION_SEARCH_READ, pageFilter, pageParams);
+        int handled = 0;
+        List<Object> lastValues = null;
+        for (Object recordObj : records) {
+            Map<String, Object> record = (Map<String, Object>) recordObj;
+            if (keyset) {
+                lastValues = sortKeys.stream().map(sortKey -> record.get(sortKey.getField())).collect(Collectors.toList());
+                if (!lastValues.stream().allMatch(value -> value instanceof Number || value instanceof String)) {
+                    lastValues = null;
+                }
+            }
+            record.keySet().removeAll(sortFields);
+
+            handled++;
+            if (!recordHandler.handle(record)) {
+                break;
+            }
+        }
+
+        if (handler instanceof SearchResultsHandler) {
+            // no cookie after the last page
+            String nextCookie = records.length < pageSize && handled == records.length ? null
+                    : new OdooPageCookie(cookie.getPosition() + handled, bucketRange, lastValues).encode();
+            ((SearchResultsHandler) handler).handleResult(new SearchResult(nextCookie, -1));
+        }
+    }
+
+    /**
+     * @return whether the next page can be selected by comparing the values of the field, which requires them to be
+     * present and ordered like the values themselves
+     */
+    private static boolean isKeysetField(OdooModel model, String fieldName) {
+        if (fieldName.equals(MODEL_FIELD_FIELD_NAME_ID)) {
+            return true;
+        }
+        OdooField field = model.getField(fieldName);
+        return field != null && field.isRequired() && KEYSET_FIELD_TYPES.contains(field.getType().getClass());
+    }
 
-            handler.handle(connObj.build());
+    /**
+     * @param sortKeys the order of the records, ending with the id
+     * @param lastValues the values of the sort fields of the last record
+     * @return the search filter restricted to the records sorted after the last record
+     */
+    static List<Object> continueAfter(List<Object> filter, List<SortKey> sortKeys, List<Object> lastValues) {
+        // the terms of a domain are combined by "and"
+        List<Object> domain = filter.isEmpty() ? new ArrayList<>() : new ArrayList<>((List<?>) filter.get(0));
+
+        // (k1 > v1) or (k1 = v1 and k2 > v2) or ..., in prefix notation
+        for (int i = 0; i < sortKeys.size(); i++) {
+            if (i < sortKeys.size() - 1) {
+                domain.add(OPERATOR_OR);
+            }
+            for (int j = 0; j < i; j++) {
+                domain.add(OPERATOR_AND);
+            }
+            for (int j = 0; j < i; j++) {
+                domain.add(asList(sortKeys.get(j).getField(), OPERATOR_EQUALS, lastValues.get(j)));
+            }
+            SortKey sortKey = sortKeys.get(i);
+            domain.add(asList(sortKey.getField(), sortKey.isAscendingOrder() ? OPERATOR_GREATER : OPERATOR_SMALLER,
+                    lastValues.get(i)));
         }
+        return singletonList(domain);
+    }
+
+    /**
+     * @return whether the query gets a single record by its uid, e.g. to read it after a change
+     */
+    public static boolean isUidLookup(Filter query) {
+        return query instanceof EqualsFilter && ((EqualsFilter) query).getAttribute().is(Uid.NAME);
     }
 
     private void mapResultField(OdooModel model, String relation, Map.Entry<String, Object> field, ConnectorObjectBuilder connObj) {
@@ -126,8 +661,10 @@ public class OdooSearch {
         }
     }
 
-    private void queryExpandedRelations(OdooModel model, OperationOptions options, Map<String, Object> record,
-            ConnectorObjectBuilder connObj) {
+    /**
+     * @return the attributes to get of related records by relation field
+     */
+    private Map<String, List<String>> getExpandedRelations(OdooModel model, OperationOptions options) {
         // first separate the attributes according their relation
         Map<String, List<String>> relationToRetrievalAttributesMap = new HashMap<>();
 
@@ -152,23 +689,47 @@ public class OdooSearch {
             }
         }
 
-        // for each related record do an extra look up
+        return relationToRetrievalAttributesMap;
+    }
+
+    /**
+     * @param relatedRecords the related records already read by relation field, null to look them up
+     */
+    private void queryExpandedRelations(OdooModel model, OperationOptions options, Map<String, Object> record,
+            ConnectorObjectBuilder connObj, Map<String, Map<String, Object>> relatedRecords) {
+        Map<String, List<String>> relationToRetrievalAttributesMap = getExpandedRelations(model, options);
+
+        // for each related record not read yet do an extra look up, all of them concurrently
+        Map<String, CompletableFuture<Object>> relatedRecordRequests = new HashMap<>();
         for (var entry : relationToRetrievalAttributesMap.entrySet()) {
             OdooField field = model.getField(entry.getKey());
             OdooModel relatedModel = cache.getModel(((OdooManyToOneType) field.getType()).getRelatedModel());
             String relatedId = (String) field.getType().mapToConnIdValue(record.get(entry.getKey()), field);
 
-            if (relatedId != null) {
+            if (relatedId != null && relatedRecords == null) {
                 Map<String, Object> params = Map.of(OPERATION_PARAMETER_FIELDS, entry.getValue());
                 List<Object> filter = Collections.singletonList(Collections.singletonList(Arrays.asList(
                         MODEL_FIELD_FIELD_NAME_ID, OPERATOR_EQUALS, relatedId)));
 
-                Object[] results = (Object[]) client.executeXmlRpc(relatedModel.getName(), OPERATION_SEARCH_READ, filter, params);
+                relatedRecordRequests.put(entry.getKey(),
+                        client.executeXmlRpcAsync(relatedModel.getName(), OPERATION_SEARCH_READ, filter, params));
+            }
+        }
+
+        for (var entry : relationToRetrievalAttributesMap.entrySet()) {
+            OdooField field = model.getField(entry.getKey());
+            OdooModel relatedModel = cache.getModel(((OdooManyToOneType) field.getType()).getRelatedModel());
+
+            Map<String, Object> relatedRecord = relatedRecords != null ? relatedRecords.get(entry.getKey()) : null;
+            if (relatedRecordRequests.containsKey(entry.getKey())) {
+                Object[] results = (Object[]) client.await(relatedRecordRequests.get(entry.getKey()));
                 if (results == null || results.length != 1) {
                     throw new ConnectorException("Retrieving related record (by " + entry.getKey() + ") did not return one record");
                 }
+                relatedRecord = (Map<String, Object>) results[0];
+            }
 
-                Map<String, Object> relatedRecord = (Map<String, Object>) results[0];
+            if (relatedRecord != null) {
                 for (var relatedField : relatedRecord.entrySet()) {
                     mapResultField(relatedModel, entry.getKey(), relatedField, connObj);
                 }
@@ -276,31 +837,9 @@ public class OdooSearch {
         }
 
         // sorting
-        if (options.getSortKeys() != null) {
-            Iterable<SortKey> effectiveSortKeys = Utils.distinctBy(
-                    Arrays.stream(options.getSortKeys())
-                            .map(sk -> {
-                                if (sk.getField().contains(Constants.MODEL_FIELD_SEPARATOR)) {
-                                    throw new ConnectorException("Sort key for expanded relation attribute is unsupported: sortKey="
-                                            + sk.getField() + ", model=" + model.getName());
-                                }
-                                return new SortKey(mapSpecialAttributeNameToOdooField(sk.getField()), sk.isAscendingOrder());
-                            }),
-                    SortKey::getField)::iterator;
-
-            StringBuilder sortParam = new StringBuilder();
-            for (SortKey sort : effectiveSortKeys) {
-                if (sortParam.length() > 0) {
-                    sortParam.append(", ");
-                }
-                sortParam.append(sort.getField());
-                if (!sort.isAscendingOrder()) {
-                    sortParam.append(" desc");
-                }
-            }
-            if (sortParam.length() > 0) {
-                params.put(OPERATION_PARAMETER_ORDER, sortParam.toString());
-            }
+        List<SortKey> sortKeys = getSortKeys(model, options);
+        if (!sortKeys.isEmpty()) {
+            params.put(OPERATION_PARAMETER_ORDER, formatOrder(sortKeys));
         }
 
         // partial retrieval of attributes
@@ -324,6 +863,41 @@ public class OdooSearch {
         return params;
     }
 
+    private List<SortKey> getSortKeys(OdooModel model, OperationOptions options) {
+        if (options.getSortKeys() == null) {
+            return emptyList();
+        }
+
+        Iterable<SortKey> effectiveSortKeys = Utils.distinctBy(
+                Arrays.stream(options.getSortKeys())
+                        .map(sk -> {
+                            if (sk.getField().contains(Constants.MODEL_FIELD_SEPARATOR)) {
+                                throw new ConnectorException("Sort key for expanded relation attribute is unsupported: sortKey="
+                                        + sk.getField() + ", model=" + model.getName());
+                            }
+                            return new SortKey(mapSpecialAttributeNameToOdooField(sk.getField()), sk.isAscendingOrder());
+                        }),
+                SortKey::getField)::iterator;
+
+        List<SortKey> result = new ArrayList<>();
+        effectiveSortKeys.forEach(result::add);
+        return result;
+    }
+
+    private static String formatOrder(List<SortKey> sortKeys) {
+        StringBuilder sortParam = new StringBuilder();
+        for (SortKey sort : sortKeys) {
+            if (sortParam.length() > 0) {
+                sortParam.append(", ");
+            }
+            sortParam.append(sort.getField());
+            if (!sort.isAscendingOrder()) {
+                sortParam.append(" desc");
+            }
+        }
+        return sortParam.toString();
+    }
+
     private String mapSpecialAttributeNameToOdooField(String attributeNameFromConnId) {
         if (attributeNameFromConnId.equals(Name.NAME) || attributeNameFromConnId.equals(Uid.NAME)) {
             return MODEL_FIELD_FIELD_NAME_ID;
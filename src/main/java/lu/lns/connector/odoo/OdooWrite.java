@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -111,7 +112,7 @@ public class OdooWrite {
         }
         catch (Exception e) {
             // we need to rollback created (related) records
-            rollbackCreatedRelatedRecords(model, relationToCreatedIdMap);
+            client.executeCompensation(() -> rollbackCreatedRelatedRecords(model, relationToCreatedIdMap));
 
             throw e;
         }
@@ -306,11 +307,13 @@ public class OdooWrite {
             return modifiedAttributes;
         }
         catch (Exception e) {
-            // we need to rollback created (related) records
-            rollbackCreatedRelatedRecords(model, relationToCreatedIdMap);
+            client.executeCompensation(() -> {
+                // we need to rollback created (related) records
+                rollbackCreatedRelatedRecords(model, relationToCreatedIdMap);
 
-            // we need to rollback updated (related) records
-            rollbackUpdatedRelatedRecords(model, relationToValuesBeforeUpdateMap);
+                // we need to rollback updated (related) records
+                rollbackUpdatedRelatedRecords(model, relationToValuesBeforeUpdateMap);
+            });
 
             throw e;
         }
@@ -342,11 +345,25 @@ public class OdooWrite {
     }
 
     private void rollbackCreatedRelatedRecords(OdooModel model, Map<String, Integer> relationToCreatedIdMap) {
+        // independent of each other, so deleted concurrently
+        Map<String, CompletableFuture<Object>> deletions = new HashMap<>();
+        for (var entry : relationToCreatedIdMap.entrySet()) {
+            OdooField field = model.getField(entry.getKey());
+            OdooModel relatedModel = cache.getModel(((OdooManyToOneType) field.getType()).getRelatedModel());
+            try {
+                deletions.put(entry.getKey(), client.executeXmlRpcAsync(relatedModel.getName(), OPERATION_DELETE,
+                        singletonList(singletonList(entry.getValue()))));
+            }
+            catch (RuntimeException e) {
+                deletions.put(entry.getKey(), CompletableFuture.failedFuture(e));
+            }
+        }
+
         for (var entry : relationToCreatedIdMap.entrySet()) {
             OdooField field = model.getField(entry.getKey());
             OdooModel relatedModel = cache.getModel(((OdooManyToOneType) field.getType()).getRelatedModel());
             try {
-                client.executeXmlRpc(relatedModel.getName(), OPERATION_DELETE, singletonList(singletonList(entry.getValue())));
+                client.await(deletions.get(entry.getKey()));
             }
             catch (Exception inner) {
                 // not much we can do here: the created related record will remain in odoo probably until cleaned up
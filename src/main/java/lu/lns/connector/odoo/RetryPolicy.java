@@ -0,0 +1,78 @@
+package lu.lns.connector.odoo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lu.lns.connector.odoo.transport.CircuitBreakerOpenException;
+import lu.lns.connector.odoo.transport.Deadline;
+import lu.lns.connector.odoo.transport.DeadlineExceededException;
+import lu.lns.connector.odoo.transport.OdooHttpStatusException;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.client.XmlRpcHttpTransportException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.ZipException;
+
+/**
+ * Decides whether a failed API call is repeated and how long to wait before, see
+ * {@link OdooConfiguration#getRetryAttempts()}. Only transient failures are retried: connection errors, timeouts and
+ * HTTP status 429, 502, 503 and 504 sent while odoo is overloaded or restarting. The delay doubles with each retry and is
+ * randomized, a delay requested by the server with header "Retry-After" takes precedence. Requests rejected by the open
+ * circuit breaker are not retried, see {@link CircuitBreakerOpenException}, neither are calls which would not complete
+ * before the deadline of the connector operation.
+ */
+class RetryPolicy {
+
+    private final int attempts;
+    private final long backoff;
+
+    RetryPolicy(OdooConfiguration configuration) {
+        this.attempts = configuration.getRetryAttempts();
+        this.backoff = configuration.getRetryBackoff();
+    }
+
+    /**
+     * @param retry    number of retries done so far
+     * @param deadline deadline of the connector operation, null if none
+     * @return milliseconds to wait before retrying or -1 if the call must not be retried
+     */
+    long getDelay(XmlRpcException e, int retry, Deadline deadline) {
+        long delay = getDelay(e, retry);
+        return deadline != null && delay >= deadline.remainingMillis() ? -1 : delay;
+    }
+
+    private long getDelay(XmlRpcException e, int retry) {
+        if (retry >= attempts || !isTransient(e)) {
+            return -1;
+        }
+
+        // "equal jitter": between half and the full exponential backoff
+        long exponential = Math.min(Constants.MAX_RETRY_DELAY, backoff << Math.min(retry, 16));
+        long delay = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OdooHttpStatusException && ((OdooHttpStatusException) t).getRetryAfter() >= 0) {
+                long retryAfter = ((OdooHttpStatusException) t).getRetryAfter();
+                return retryAfter > Constants.MAX_RETRY_DELAY ? -1 : Math.max(delay, retryAfter);
+            }
+        }
+        return delay;
+    }
+
+    private static boolean isTransient(XmlRpcException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof XmlRpcHttpTransportException) {
+                return OdooHttpStatusException.isTransient(((XmlRpcHttpTransportException) t).getStatusCode());
+            }
+            else if (t instanceof IOException) {
+                // not transient: circuit breaker open, deadline exceeded, interrupted, invalid response
+                return !(t instanceof CircuitBreakerOpenException) && !(t instanceof DeadlineExceededException)
+                        && (!(t instanceof InterruptedIOException) || t instanceof SocketTimeoutException)
+                        && !(t instanceof JsonProcessingException) && !(t instanceof ZipException);
+            }
+        }
+        return false;
+    }
+
+}
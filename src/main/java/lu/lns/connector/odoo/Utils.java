@@ -1,7 +1,10 @@
 package lu.lns.connector.odoo;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public final class Utils {
@@ -26,6 +29,18 @@ public final class Utils {
                 .map(item -> item.object);
     }
 
+    /**
+     * Splits the URL configured in {@link OdooConfiguration#getUrl()} into the URLs of the odoo nodes.
+     *
+     * @param url comma-separated list of URLs
+     * @return URLs without trailing slash
+     */
+    public static List<String> splitUrls(String url) {
+        return Arrays.stream(url.trim().split("\\s*,\\s*"))
+                .map(u -> u.endsWith("/") ? u.substring(0, u.length() - 1) : u)
+                .collect(Collectors.toList());
+    }
+
     private static class DistinctByItem<T, R> {
 
         private R key;
@@ -10,6 +10,7 @@ public class OdooField {
     private String name;
     private OdooType type;
     private OdooModel model;
+    private boolean required;
 
     /**
      * @return name of the field
@@ -44,4 +45,15 @@ public class OdooField {
         this.model = model;
     }
 
+    /**
+     * @return whether the field always has a value
+     */
+    public boolean isRequired() {
+        return required;
+    }
+
+    public void setRequired(boolean required) {
+        this.required = required;
+    }
+
 }
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -21,7 +22,11 @@ public class OdooOneOrManyToManyType extends OdooRelationType implements MultiVa
 
     @Override
     protected Optional<Object> mapToConnIdValue(Object valueFromXmlRpc) {
-        if (valueFromXmlRpc instanceof Object[]) {
+        if (valueFromXmlRpc instanceof int[]) {
+            // integer ID array as read by the odoo protocols
+            return Optional.of(IntStream.of((int[]) valueFromXmlRpc).mapToObj(Integer::toString).collect(Collectors.toList()));
+        }
+        else if (valueFromXmlRpc instanceof Object[]) {
             // expecting integer ID array represented as Object[], we need to
             // manually convert them to String[] so why not directly to List<String>
             return Optional.of(Stream.of((Object[]) valueFromXmlRpc).map(
@@ -1,9 +1,9 @@
 package lu.lns.connector.odoo.schema.type;
 
 import lu.lns.connector.odoo.schema.OdooField;
+import lu.lns.connector.odoo.transport.BinaryValue;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 
-import java.util.Base64;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -101,8 +101,8 @@ public abstract class OdooType {
     protected Object mapToOdooValue(Object attributeValueFromConnId) {
 
         if (attributeValueFromConnId instanceof byte[]) {
-            byte[] bytes = (byte[]) attributeValueFromConnId;
-            attributeValueFromConnId = Base64.getEncoder().encodeToString(bytes);
+            // sent base64 encoded, but only encoded while the request is sent
+            attributeValueFromConnId = new BinaryValue((byte[]) attributeValueFromConnId);
         }
 
         // mimic null behavior same as odoo returning boolean "false" for unset values
@@ -0,0 +1,227 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooMetrics;
+import lu.lns.connector.odoo.Utils;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocking HTTP/1.1 backend based on the pooling apache HTTP client. Connections are kept alive and reused between
+ * calls, which also includes the TLS session as the same SSL context is used for all connections. Connections unused for
+ * {@link OdooConfiguration#getConnectionIdleTimeout()} are evicted in the background.
+ * <p>
+ * The apache client has no non-blocking mode, so asynchronous requests are executed by pooled daemon threads. Their
+ * number is bounded by the requests the {@link RequestScheduler} lets through, i.e. by the max connections per host.
+ * Java 17 is targeted, otherwise virtual threads would do.
+ */
+class ApacheHttpBackend implements HttpBackend {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "odoo-async-call-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final OdooMetrics metrics;
+    private final int readTimeout;
+
+    ApacheHttpBackend(OdooConfiguration configuration, OdooMetrics metrics) {
+        this.metrics = metrics;
+        this.readTimeout = configuration.getReadTimeout();
+
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(configuration.getConnectTimeout()))
+                .setSocketTimeout(Timeout.ofMilliseconds(configuration.getReadTimeout()))
+                .build();
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(OdooHttpClient.getMaxConnections(configuration) / Utils.splitUrls(configuration.getUrl()).size())
+                .setMaxConnTotal(OdooHttpClient.getMaxConnections(configuration))
+                .setDefaultConnectionConfig(connectionConfig)
+                .setSSLSocketFactory(SSLConnectionSocketFactory.getSystemSocketFactory())
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofMilliseconds(configuration.getConnectionIdleTimeout()))
+                .evictExpiredConnections()
+                .disableContentCompression() // handled by OdooHttpClient to be able to count the compressed bytes
+                .build();
+    }
+
+    @Override
+    public OdooHttpResponse send(URI uri, Map<String, String> headers, String contentType, String contentEncoding, long contentLength,
+            OdooHttpClient.BodyWriter body, Deadline deadline) throws IOException {
+
+        HttpPost post = new HttpPost(uri);
+        headers.forEach(post::setHeader);
+        if (deadline != null) {
+            // odoo sends the response only when done, so the response timeout limits the time until the response starts
+            Timeout timeout = Timeout.ofMilliseconds(Deadline.timeout(deadline, readTimeout));
+            post.setConfig(RequestConfig.custom().setResponseTimeout(timeout).setConnectionRequestTimeout(timeout).build());
+        }
+        post.setEntity(new AbstractHttpEntity(contentType, contentEncoding, contentLength < 0) {
+
+            @Override
+            public long getContentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public InputStream getContent() {
+                throw new UnsupportedOperationException("Request body can only be written");
+            }
+
+            @Override
+            public void writeTo(OutputStream outStream) throws IOException {
+                body.write(outStream);
+            }
+
+            @Override
+            public boolean isStreaming() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+                // nothing to close, body is written on demand
+            }
+
+        });
+
+        Future<?> expiry = Deadline.onExpiry(deadline, post::cancel);
+        try {
+            // the target host is taken from the request URI
+            return new Response(httpClient.executeOpen(null, post, null), post, expiry);
+        }
+        catch (IOException | RuntimeException e) {
+            expiry.cancel(false);
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException(e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<OdooHttpResponse> sendAsync(URI uri, Map<String, String> headers, String contentType, String contentEncoding,
+            byte[] body, Deadline deadline) {
+
+        CompletableFuture<OdooHttpResponse> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try (OdooHttpResponse response = send(uri, headers, contentType, contentEncoding, body.length, out -> out.write(body),
+                        deadline)) {
+                    // read completely as the response is expected to be complete when the future completes
+                    InputStream content = response.getRawContent();
+                    future.complete(new BufferedHttpResponse(response.getStatusCode(), response.getReasonPhrase(),
+                            response::getHeader, content == null ? new byte[0] : content.readAllBytes(), metrics));
+                }
+                catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("HTTP client closed", e));
+        }
+        return future;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        httpClient.close();
+    }
+
+    private class Response extends OdooHttpResponse {
+
+        private final ClassicHttpResponse response;
+        private final HttpPost request;
+        private final Future<?> expiry;
+        private boolean aborted;
+
+        Response(ClassicHttpResponse response, HttpPost request, Future<?> expiry) {
+            super(metrics);
+            this.response = response;
+            this.request = request;
+            this.expiry = expiry;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            Header header = response.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        InputStream getRawContent() throws IOException {
+            HttpEntity entity = response.getEntity();
+            return entity == null ? null : entity.getContent();
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            request.cancel();
+        }
+
+        @Override
+        public void close() throws IOException {
+            expiry.cancel(false);
+            if (aborted || request.isCancelled()) {
+                try {
+                    response.close();
+                }
+                catch (IOException e) {
+                    // expected as the connection has been closed already, e.g. when the deadline passed
+                }
+                return;
+            }
+
+            // the remaining body needs to be consumed, otherwise the connection cannot be reused
+            EntityUtils.consume(response.getEntity());
+            response.close();
+        }
+
+    }
+
+}
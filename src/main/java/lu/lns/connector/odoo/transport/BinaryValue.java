@@ -0,0 +1,32 @@
+package lu.lns.connector.odoo.transport;
+
+/**
+ * Value of a binary field to be sent to odoo, which expects binaries as base64 encoded strings. Unlike a string holding
+ * the encoded value, the bytes are only encoded while the request body is sent, see
+ * {@link RequestBuffer#writeBase64(byte[])}, so large binaries are not held in memory several times.
+ */
+public final class BinaryValue {
+
+    private final byte[] bytes;
+
+    public BinaryValue(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the length of the base64 encoded value of the given number of bytes
+     */
+    static long encodedLength(int length) {
+        return 4L * ((length + 2) / 3);
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryValue{" + bytes.length + " bytes}";
+    }
+
+}
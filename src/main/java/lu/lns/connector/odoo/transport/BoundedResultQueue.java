@@ -0,0 +1,142 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decouples reading a streamed result from processing its elements. The response is read by a background thread which
+ * hands the parsed elements over to the calling thread via a queue of limited capacity. So elements are processed while
+ * the rest of the response is still arriving, and at most "capacity" elements wait in memory if processing is slower
+ * than the network. The element handler is always called by the calling thread, as expected by the connector framework.
+ */
+public class BoundedResultQueue {
+
+    private static final AtomicInteger readerThreadCount = new AtomicInteger();
+    private static final ExecutorService readers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "odoo-response-reader-" + readerThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // markers in the queue as it cannot hold null
+    private static final Object NULL_ELEMENT = new Object();
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private BoundedResultQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Executes the call in a background thread and passes the elements received to the handler in the calling thread.
+     * Returns when all elements have been handled or the handler stopped the retrieval.
+     *
+     * @param capacity maximum number of elements waiting to be handled
+     */
+    public static void execute(StreamingCall call, int capacity, OdooProtocol.ElementHandler handler) throws XmlRpcException {
+        new BoundedResultQueue(capacity).run(call, handler);
+    }
+
+    private void run(StreamingCall call, OdooProtocol.ElementHandler handler) throws XmlRpcException {
+        Deadline deadline = Deadline.current();
+        RequestPriority priority = RequestPriority.current();
+        Future<?> reader = readers.submit(() -> {
+            try (Scope deadlineScope = Deadline.activate(deadline); Scope priorityScope = RequestPriority.activate(priority)) {
+                call.execute(element -> offer(element == null ? NULL_ELEMENT : element));
+                return null;
+            }
+            finally {
+                offer(END);
+            }
+        });
+
+        boolean handledAll = false;
+        try {
+            while (true) {
+                Object element = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (element == END || element == null && reader.isDone() && queue.isEmpty()) {
+                    break;
+                }
+                else if (element == null) {
+                    continue;
+                }
+                if (!handler.handle(element == NULL_ELEMENT ? null : element)) {
+                    stopped.set(true);
+                    break;
+                }
+            }
+            handledAll = true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XmlRpcException("Interrupted while waiting for the response", e);
+        }
+        finally {
+            if (!handledAll) {
+                // the reader stops at the next element and discards the rest of the response
+                stopped.set(true);
+            }
+        }
+
+        awaitReader(reader);
+    }
+
+    private boolean offer(Object element) {
+        try {
+            while (!stopped.get()) {
+                if (queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private void awaitReader(Future<?> reader) throws XmlRpcException {
+        try {
+            reader.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XmlRpcException("Interrupted while waiting for the response", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof XmlRpcException) {
+                throw (XmlRpcException) e.getCause();
+            }
+            else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new XmlRpcException("Failed to read the response: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Call streaming its result to the given handler, see
+     * {@link OdooProtocol#executeStreaming(String, String, java.util.List, OdooProtocol.ElementHandler)}.
+     */
+    @FunctionalInterface
+    public interface StreamingCall {
+
+        void execute(OdooProtocol.ElementHandler handler) throws XmlRpcException;
+
+    }
+
+}
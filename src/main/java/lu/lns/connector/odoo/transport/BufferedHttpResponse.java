@@ -0,0 +1,58 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * Response whose body has been received completely, as returned by asynchronous requests. Closing or aborting it has no
+ * effect on connections anymore.
+ */
+class BufferedHttpResponse extends OdooHttpResponse {
+
+    private final int statusCode;
+    private final String reasonPhrase;
+    private final Function<String, String> headers;
+    private final byte[] body;
+
+    BufferedHttpResponse(int statusCode, String reasonPhrase, Function<String, String> headers, byte[] body, OdooMetrics metrics) {
+        super(metrics);
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.apply(name);
+    }
+
+    @Override
+    InputStream getRawContent() {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public void abort() {
+        // nothing to abort, the body has been received already
+    }
+
+    @Override
+    public void close() {
+        // nothing to close, the connection has been released already
+    }
+
+}
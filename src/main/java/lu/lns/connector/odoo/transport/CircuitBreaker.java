@@ -0,0 +1,111 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooMetrics;
+import org.identityconnectors.common.logging.Log;
+
+/**
+ * Stops sending requests to odoo for {@link OdooConfiguration#getCircuitBreakerOpenTime()} after
+ * {@link OdooConfiguration#getCircuitBreakerThreshold()} consecutive failures, so callers fail fast instead of waiting
+ * for timeouts and putting load on a server that is down or restarting. Afterwards a single trial request is let through:
+ * the breaker closes again if it succeeds and stays open for another period otherwise.
+ * <p>
+ * Failures are connection errors, timeouts and HTTP status 5xx and 429, e.g. sent by a proxy while odoo is unavailable,
+ * but not errors reported by odoo itself nor requests ended by the client, e.g. when the deadline of the operation
+ * passed. One breaker is shared by all users of an {@link OdooHttpClient}. This class is thread-safe.
+ */
+class CircuitBreaker {
+
+    private static final Log LOG = Log.getLog(CircuitBreaker.class);
+
+    private final String endpoint;
+    private final int threshold;
+    private final long openTime;
+    private final OdooMetrics metrics;
+
+    private int failures;
+    private long openUntil;
+    private boolean trialPending;
+
+    CircuitBreaker(String endpoint, OdooConfiguration configuration, OdooMetrics metrics) {
+        this.endpoint = endpoint;
+        this.threshold = configuration.getCircuitBreakerThreshold();
+        this.openTime = configuration.getCircuitBreakerOpenTime();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Must be called before sending a request, followed by {@link #onResponse(int)}, {@link #onFailure()} or
+     * {@link #onAbort()}.
+     *
+     * @throws CircuitBreakerOpenException if the request must not be sent
+     */
+    synchronized void acquire() throws CircuitBreakerOpenException {
+        if (threshold == 0 || failures < threshold) {
+            return;
+        }
+
+        long remaining = openUntil - System.currentTimeMillis();
+        if (remaining > 0 || trialPending) {
+            metrics.getCircuitBreakerRejections().increment();
+            throw new CircuitBreakerOpenException("Odoo at " + endpoint + " is considered unavailable after " + failures
+                    + " consecutive failures, next attempt in " + Math.max(remaining, 0) + " ms");
+        }
+        trialPending = true;
+    }
+
+    /**
+     * @return whether a request would be let through at the moment, without reserving the trial request
+     */
+    synchronized boolean isAvailable() {
+        return threshold == 0 || failures < threshold || openUntil <= System.currentTimeMillis() && !trialPending;
+    }
+
+    /**
+     * Records the status of a response received.
+     */
+    void onResponse(int status) {
+        if (status >= 500 || status == 429) {
+            onFailure();
+        }
+        else {
+            onSuccess();
+        }
+    }
+
+    synchronized void onSuccess() {
+        if (failures >= threshold && threshold > 0) {
+            LOG.info("Odoo at {0} is available again, closing circuit breaker", endpoint);
+        }
+        failures = 0;
+        trialPending = false;
+    }
+
+    /**
+     * Records a request which ended without telling anything about the server's health, e.g. because the deadline of the
+     * operation passed or the request was cancelled. If it was the trial request, the next request is the trial instead.
+     */
+    synchronized void onAbort() {
+        trialPending = false;
+    }
+
+    /**
+     * Records a request which failed because of the connection or the server's availability.
+     */
+    synchronized void onFailure() {
+        if (threshold == 0) {
+            return;
+        }
+
+        boolean trial = trialPending;
+        trialPending = false;
+        failures++;
+        if (failures == threshold || trial) {
+            openUntil = System.currentTimeMillis() + openTime;
+            metrics.getCircuitBreakerOpened().increment();
+            LOG.warn("Odoo at {0} is considered unavailable after {1} consecutive failures, opening circuit breaker for {2} ms",
+                    endpoint, failures, openTime);
+        }
+    }
+
+}
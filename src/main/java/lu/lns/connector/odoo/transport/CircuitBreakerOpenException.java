@@ -0,0 +1,17 @@
+package lu.lns.connector.odoo.transport;
+
+import java.net.ConnectException;
+
+/**
+ * Thrown instead of sending a request while the {@link CircuitBreaker} is open, i.e. odoo is considered unavailable.
+ * Treated like a refused connection by callers, but must not be retried.
+ */
+public class CircuitBreakerOpenException extends ConnectException {
+
+    private static final long serialVersionUID = 1L;
+
+    CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+}
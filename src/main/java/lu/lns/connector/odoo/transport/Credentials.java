@@ -0,0 +1,41 @@
+package lu.lns.connector.odoo.transport;
+
+/**
+ * Credentials of an authenticated session, sent as first arguments of each "execute_kw" call, see
+ * {@link ExecuteArguments}. As they do not change during the session, the protocols encode them only once and copy the
+ * encoded form into each request.
+ */
+public final class Credentials {
+
+    private final String database;
+    private final int uid;
+    private final String secret;
+
+    // encoded forms, computed by the protocols when first needed
+    volatile byte[] xmlRpcParams;
+    volatile String jsonRpcArgs;
+
+    public Credentials(String database, int uid, String secret) {
+        this.database = database;
+        this.uid = uid;
+        this.secret = secret;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public int getUid() {
+        return uid;
+    }
+
+    String getSecret() {
+        return secret;
+    }
+
+    @Override
+    public String toString() {
+        return "Credentials{database=" + database + ", uid=" + uid + "}";
+    }
+
+}
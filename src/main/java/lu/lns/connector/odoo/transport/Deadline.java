@@ -0,0 +1,154 @@
+package lu.lns.connector.odoo.transport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Point in time by which a connector operation must be completed, including all API calls made for it, see
+ * {@link lu.lns.connector.odoo.OdooConfiguration#getOperationTimeout()}. The deadline of the current operation is bound
+ * to the thread executing it with {@link #activate(Deadline)} and picked up by the {@link OdooHttpClient}: requests are
+ * not sent anymore once it has passed, the timeouts of requests are reduced to the remaining time, and requests still
+ * running when it passes are aborted. A {@link #cancellable(Deadline)} deadline can be made to pass earlier.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+    private static final AtomicInteger timerThreadCount = new AtomicInteger();
+    private static final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "odoo-deadline-timer-" + timerThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // most requests complete in time, so most timers are cancelled
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    private final long expiresAt;
+
+    // completed when the deadline is cancelled, null if it cannot be cancelled
+    private final CompletableFuture<Void> cancellation;
+
+    private Deadline(long expiresAt, CompletableFuture<Void> cancellation) {
+        this.expiresAt = expiresAt;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @return deadline the given number of milliseconds from now
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), null);
+    }
+
+    /**
+     * @param deadline deadline passing at the same time, null if none
+     * @return deadline passing with the given one or when {@link #cancel()} is called, e.g. to abort the requests of an
+     * API call whose result is not needed anymore
+     */
+    public static Deadline cancellable(Deadline deadline) {
+        // practically no limit if there is no deadline
+        long expiresAt = deadline != null ? deadline.expiresAt : System.nanoTime() + Long.MAX_VALUE / 2;
+        Deadline result = new Deadline(expiresAt, new CompletableFuture<>());
+        if (deadline != null && deadline.cancellation != null) {
+            deadline.cancellation.thenRun(result::cancel);
+        }
+        return result;
+    }
+
+    /**
+     * @return deadline bound to the current thread, null if none
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Binds the deadline to the current thread until the returned scope is closed.
+     *
+     * @param deadline deadline to bind, null to run without deadline
+     */
+    public static Scope activate(Deadline deadline) {
+        Deadline previous = current.get();
+        current.set(deadline);
+        return () -> current.set(previous);
+    }
+
+    /**
+     * Lets a {@link #cancellable(Deadline)} deadline pass now, requests still running are aborted.
+     */
+    public void cancel() {
+        cancellation.complete(null);
+    }
+
+    /**
+     * @return milliseconds until the deadline, zero or negative if passed already
+     */
+    public long remainingMillis() {
+        return isCancelled() ? 0 : TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return isCancelled() || expiresAt - System.nanoTime() <= 0;
+    }
+
+    private boolean isCancelled() {
+        return cancellation != null && cancellation.isDone();
+    }
+
+    /**
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    void check() throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException(null);
+        }
+    }
+
+    /**
+     * @param timeout timeout in milliseconds configured for a request, zero for none
+     * @return the configured timeout reduced to the time remaining until the deadline (at least one millisecond), zero if
+     * neither limits the request
+     */
+    static long timeout(Deadline deadline, long timeout) {
+        if (deadline == null) {
+            return timeout;
+        }
+        // rounded up, a request timing out before the deadline passed would not be recognized as exceeding it
+        long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline.expiresAt - System.nanoTime() + 999_999));
+        if (deadline.isCancelled()) {
+            remaining = 1;
+        }
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+
+    /**
+     * Runs the action when the deadline passes, e.g. to abort a request. Cancel the returned future if not needed
+     * anymore.
+     */
+    static Future<?> onExpiry(Deadline deadline, Runnable action) {
+        if (deadline == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Future<?> timeout = timer.schedule(action, Math.max(0, deadline.expiresAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (deadline.cancellation == null) {
+            return timeout;
+        }
+
+        CompletableFuture<Void> expiry = new CompletableFuture<>();
+        expiry.whenComplete((v, e) -> timeout.cancel(false));
+        deadline.cancellation.thenRun(() -> {
+            // not if the returned future has been cancelled before
+            if (expiry.complete(null)) {
+                action.run();
+            }
+        });
+        return expiry;
+    }
+
+}
@@ -0,0 +1,17 @@
+package lu.lns.connector.odoo.transport;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request or while receiving a response when the {@link Deadline} of the connector
+ * operation has passed. Must not be retried.
+ */
+public class DeadlineExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    DeadlineExceededException(Throwable cause) {
+        super("Deadline of the connector operation exceeded", cause);
+    }
+
+}
@@ -0,0 +1,58 @@
+package lu.lns.connector.odoo.transport;
+
+import java.util.AbstractList;
+
+/**
+ * Arguments of an "execute_kw" call: database, uid and password of the session followed by model, method and the
+ * parameters of the method. A view on the given values instead of a copy, which lets the protocols write the encoded
+ * credentials instead of encoding them again for each request.
+ */
+public final class ExecuteArguments extends AbstractList<Object> {
+
+    // number of arguments taken from the credentials
+    static final int CREDENTIALS_SIZE = 3;
+    private static final int PREFIX_SIZE = CREDENTIALS_SIZE + 2;
+
+    private final Credentials credentials;
+    private final String model;
+    private final String method;
+    private final Object[] parameters;
+
+    public ExecuteArguments(Credentials credentials, String model, String method, Object[] parameters) {
+        this.credentials = credentials;
+        this.model = model;
+        this.method = method;
+        this.parameters = parameters;
+    }
+
+    public Credentials getCredentials() {
+        return credentials;
+    }
+
+    @Override
+    public Object get(int index) {
+        switch (index) {
+            case 0:
+                return credentials.getDatabase();
+            case 1:
+                return credentials.getUid();
+            case 2:
+                return credentials.getSecret();
+            case 3:
+                return model;
+            case 4:
+                return method;
+            default:
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+                }
+                return parameters[index - PREFIX_SIZE];
+        }
+    }
+
+    @Override
+    public int size() {
+        return PREFIX_SIZE + parameters.length;
+    }
+
+}
@@ -0,0 +1,39 @@
+package lu.lns.connector.odoo.transport;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP implementation used by {@link OdooHttpClient} to send requests. Compression and metrics are handled by the
+ * client, so a backend only sends the request body as given and returns the response body as received.
+ */
+interface HttpBackend {
+
+    /**
+     * Sends a POST request and returns as soon as the response headers are received, the body is read on demand.
+     *
+     * @param contentEncoding encoding of the body or null if not encoded
+     * @param contentLength   length of the body or -1 if unknown
+     * @param deadline        request is aborted when the deadline passes, also while reading the body, null if none
+     */
+    OdooHttpResponse send(URI uri, Map<String, String> headers, String contentType, String contentEncoding, long contentLength,
+            OdooHttpClient.BodyWriter body, Deadline deadline) throws IOException;
+
+    /**
+     * Sends a POST request without blocking the calling thread. The future completes when the whole response body has
+     * been received.
+     *
+     * @param contentEncoding encoding of the body or null if not encoded
+     * @param deadline        timeouts of the request are reduced to the time remaining until the deadline, null if none
+     */
+    CompletableFuture<OdooHttpResponse> sendAsync(URI uri, Map<String, String> headers, String contentType, String contentEncoding,
+            byte[] body, Deadline deadline);
+
+    /**
+     * Closes all connections.
+     */
+    void close() throws IOException;
+
+}
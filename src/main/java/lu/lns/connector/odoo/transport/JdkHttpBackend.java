@@ -0,0 +1,392 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Backend based on the NIO {@link HttpClient} of the JDK. Requests are multiplexed on a few selector threads, so
+ * asynchronous requests do not occupy a thread while waiting for odoo. With {@link OdooConfiguration#isHttp2()} HTTP/2
+ * is negotiated with the server (falling back to HTTP/1.1 if not supported), which sends all concurrent requests over a
+ * single connection.
+ * <p>
+ * The JDK client does not limit the number of connections, so the number of concurrent requests is limited to
+ * {@link OdooHttpClient#getMaxConnections(OdooConfiguration)} by this class. Idle connections are closed by the JDK client
+ * after a fixed time, see system property "jdk.httpclient.keepalive.timeout".
+ * <p>
+ * As the JDK client pulls the request body, large bodies are written by a separate thread while being sent instead of
+ * being copied into memory, see {@link StreamedBody}.
+ */
+class JdkHttpBackend implements HttpBackend {
+
+    // set by the JDK client itself and rejected if given
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(Set.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    // smaller bodies are buffered, which is cheaper than a thread writing them
+    private static final long MIN_STREAMED_SIZE = 256 * 1024;
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private static final AtomicInteger writerThreadCount = new AtomicInteger();
+
+    private final HttpClient httpClient;
+    private final OdooMetrics metrics;
+    private final int readTimeout;
+
+    // permits of concurrent requests, waiting requests are queued instead of blocking a thread
+    private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int permits;
+
+    JdkHttpBackend(OdooConfiguration configuration, OdooMetrics metrics) {
+        this.metrics = metrics;
+        this.readTimeout = configuration.getReadTimeout();
+        this.permits = OdooHttpClient.getMaxConnections(configuration);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(configuration.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (configuration.getConnectTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(configuration.getConnectTimeout()));
+        }
+        this.httpClient = builder.build();
+    }
+
+    @Override
+    public OdooHttpResponse send(URI uri, Map<String, String> headers, String contentType, String contentEncoding, long contentLength,
+            OdooHttpClient.BodyWriter body, Deadline deadline) throws IOException {
+
+        HttpRequest.BodyPublisher publisher;
+        StreamedBody streamedBody = null;
+        if (contentLength >= 0 && contentLength < MIN_STREAMED_SIZE) {
+            // the JDK client pulls the body, so it is written to a buffer first
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) contentLength);
+            body.write(buffer);
+            publisher = HttpRequest.BodyPublishers.ofByteArray(buffer.toByteArray());
+        }
+        else {
+            streamedBody = new StreamedBody(body, contentLength);
+            publisher = streamedBody.publisher;
+        }
+        HttpRequest request = buildRequest(uri, headers, contentType, contentEncoding, publisher, deadline);
+
+        CompletableFuture<Void> permit = acquirePermit();
+        try {
+            if (deadline != null) {
+                permit.get(Deadline.timeout(deadline, 0), TimeUnit.MILLISECONDS);
+            }
+            else {
+                permit.get();
+            }
+        }
+        catch (InterruptedException e) {
+            permit.thenRun(this::releasePermit);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection");
+        }
+        catch (TimeoutException e) {
+            permit.thenRun(this::releasePermit);
+            throw new DeadlineExceededException(e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        try {
+            Response response = new Response(httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream()));
+            response.expiry = Deadline.onExpiry(deadline, response::abort);
+            return response;
+        }
+        catch (InterruptedException e) {
+            releasePermit();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+        catch (IOException | RuntimeException e) {
+            releasePermit();
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException(e);
+            }
+            throw e;
+        }
+        finally {
+            if (streamedBody != null) {
+                // the body has been sent when the response arrives
+                streamedBody.close();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<OdooHttpResponse> sendAsync(URI uri, Map<String, String> headers, String contentType, String contentEncoding,
+            byte[] body, Deadline deadline) {
+
+        return acquirePermit()
+                .thenCompose(v -> {
+                    if (deadline != null && deadline.isExpired()) {
+                        return CompletableFuture.failedFuture(new DeadlineExceededException(null));
+                    }
+                    // built when sent as its timeout starts then
+                    HttpRequest request = buildRequest(uri, headers, contentType, contentEncoding,
+                            HttpRequest.BodyPublishers.ofByteArray(body), deadline);
+                    CompletableFuture<HttpResponse<byte[]>> sent = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+                    // the request timeout covers the deadline unless it is cancelled earlier
+                    Future<?> expiry = Deadline.onExpiry(deadline, () -> sent.cancel(true));
+                    return sent.whenComplete((response, e) -> expiry.cancel(false));
+                })
+                .whenComplete((response, e) -> releasePermit())
+                .exceptionallyCompose(e -> {
+                    // the request timeout is shortened to the deadline
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (deadline != null && deadline.isExpired() && !(cause instanceof DeadlineExceededException)) {
+                        cause = new DeadlineExceededException(cause);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                })
+                .thenApply(response -> new BufferedHttpResponse(response.statusCode(), reasonPhrase(response),
+                        name -> response.headers().firstValue(name).orElse(null), response.body(), metrics));
+    }
+
+    /**
+     * Body written by a separate thread into a pipe the JDK client reads from, as it pulls the body while sending it.
+     * Used for large bodies, e.g. uploading binaries, so that they are not copied into memory once more.
+     */
+    private static final class StreamedBody implements Closeable {
+
+        private final OdooHttpClient.BodyWriter body;
+        private final HttpRequest.BodyPublisher publisher;
+        private final Queue<PipedInputStream> pipes = new ConcurrentLinkedQueue<>();
+
+        StreamedBody(OdooHttpClient.BodyWriter body, long contentLength) {
+            this.body = body;
+            HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(this::open);
+            this.publisher = contentLength < 0 ? stream : HttpRequest.BodyPublishers.fromPublisher(stream, contentLength);
+        }
+
+        private InputStream open() {
+            PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+            pipes.add(in);
+            AtomicReference<IOException> failure = new AtomicReference<>();
+            try {
+                PipedOutputStream out = new PipedOutputStream(in);
+                Thread writer = new Thread(() -> {
+                    try (out) {
+                        body.write(out);
+                    }
+                    catch (IOException e) {
+                        failure.set(e);
+                    }
+                }, "odoo-request-writer-" + writerThreadCount.incrementAndGet());
+                writer.setDaemon(true);
+                writer.start();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return new FilterInputStream(in) {
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    // the end of the pipe is also reached when writing the body failed
+                    if (read < 0 && failure.get() != null) {
+                        throw failure.get();
+                    }
+                    return read;
+                }
+
+            };
+        }
+
+        /**
+         * Stops writers still waiting for the client to read, e.g. because the request failed.
+         */
+        @Override
+        public void close() {
+            for (PipedInputStream pipe = pipes.poll(); pipe != null; pipe = pipes.poll()) {
+                try {
+                    pipe.close();
+                }
+                catch (IOException e) {
+                    // nothing to do, closing a pipe does not fail
+                }
+            }
+        }
+
+    }
+
+    private HttpRequest buildRequest(URI uri, Map<String, String> headers, String contentType, String contentEncoding,
+            HttpRequest.BodyPublisher body, Deadline deadline) {
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .POST(body)
+                .header("Content-Type", contentType);
+        if (contentEncoding != null) {
+            builder.header("Content-Encoding", contentEncoding);
+        }
+        long timeout = Deadline.timeout(deadline, readTimeout);
+        if (timeout > 0) {
+            builder.timeout(Duration.ofMillis(timeout));
+        }
+        headers.forEach((name, value) -> {
+            if (!RESTRICTED_HEADERS.contains(name) && !"Content-Type".equalsIgnoreCase(name)) {
+                builder.header(name, value);
+            }
+        });
+        return builder.build();
+    }
+
+    private synchronized CompletableFuture<Void> acquirePermit() {
+        if (permits > 0) {
+            permits--;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        waiting.add(permit);
+        return permit;
+    }
+
+    private void releasePermit() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                permits++;
+                return;
+            }
+        }
+        // hand the permit over directly, outside of the lock as it runs the dependent request
+        next.complete(null);
+    }
+
+    private static String reasonPhrase(HttpResponse<?> response) {
+        // HTTP/2 does not transport reason phrases
+        return "HTTP status " + response.statusCode();
+    }
+
+    @Override
+    public void close() {
+        // the JDK client has no close method in java 17, its connections are closed when it is garbage collected
+    }
+
+    private class Response extends OdooHttpResponse {
+
+        private final HttpResponse<InputStream> response;
+        private final InputStream body;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean aborted;
+        private volatile Future<?> expiry = CompletableFuture.completedFuture(null);
+
+        Response(HttpResponse<InputStream> response) {
+            super(metrics);
+            this.response = response;
+            this.body = new FilterInputStream(response.body()) {
+
+                private final AtomicBoolean closed = new AtomicBoolean();
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        // the remaining body needs to be consumed, otherwise the connection cannot be reused, closing
+                        // the stream before its end cancels the exchange and closes the connection
+                        if (!aborted) {
+                            transferTo(OutputStream.nullOutputStream());
+                        }
+                    }
+                    finally {
+                        super.close();
+                    }
+                }
+
+            };
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return reasonPhrase(response);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        InputStream getRawContent() {
+            return body;
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            try {
+                // the stream of the JDK client directly, as another thread might be reading or draining the body
+                response.body().close();
+            }
+            catch (IOException e) {
+                // nothing to do, the connection is discarded anyway
+            }
+            release();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                body.close();
+            }
+            finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                expiry.cancel(false);
+                releasePermit();
+            }
+        }
+
+    }
+
+}
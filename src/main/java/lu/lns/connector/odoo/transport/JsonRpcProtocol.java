@@ -0,0 +1,365 @@
+package lu.lns.connector.odoo.transport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooConstants;
+import lu.lns.connector.odoo.Utils;
+import org.apache.xmlrpc.XmlRpcException;
+import org.identityconnectors.framework.common.exceptions.ConfigurationException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls the odoo API via JSON-RPC 2.0 on the "/jsonrpc" endpoint. The same services and methods as for XML-RPC are
+ * provided by odoo there, but JSON is much more compact than XML-RPC structs, especially for "search_read" results.
+ * <p>
+ * Requests are written and responses are parsed with a streaming JSON parser, i.e. without an intermediate tree model.
+ * JSON values are mapped to the same java types as XML-RPC values, see {@link OdooProtocol}. Streaming of array results
+ * is supported, see {@link #executeStreaming(String, String, List, ElementHandler)}. Field names need no interning here,
+ * the parser already canonicalizes them.
+ */
+public class JsonRpcProtocol implements OdooProtocol {
+
+    // the response stream is owned by the HTTP response which decides whether to read or discard the rest of the body
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().disable(StreamReadFeature.AUTO_CLOSE_SOURCE).build();
+    private static final String CONTENT_TYPE = "application/json";
+
+    private final OdooHttpClient httpClient;
+    private final URI uri;
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    public JsonRpcProtocol(OdooConfiguration configuration, OdooHttpClient httpClient) {
+        this.httpClient = httpClient;
+        try {
+            this.uri = new URI(Utils.splitUrls(configuration.getUrl()).get(0) + OdooConstants.JSONRPC);
+        }
+        catch (URISyntaxException e) {
+            throw new ConfigurationException("Invalid server URL", e);
+        }
+    }
+
+    @Override
+    public Object execute(String service, String method, List<Object> args) throws XmlRpcException {
+        return call(service, method, args, null);
+    }
+
+    @Override
+    public void executeStreaming(String service, String method, List<Object> args, ElementHandler handler) throws XmlRpcException {
+        call(service, method, args, handler);
+    }
+
+    @Override
+    public CompletableFuture<Object> executeAsync(String service, String method, List<Object> args) {
+        byte[] request;
+        RequestBuffer buffer = RequestBuffer.acquire();
+        try {
+            serializeRequest(buffer, service, method, args);
+            // the buffer is reused before the request is sent
+            request = buffer.toByteArray();
+        }
+        catch (XmlRpcException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        finally {
+            buffer.release();
+        }
+
+        return httpClient.postAsync(uri, Map.of("Accept", CONTENT_TYPE), CONTENT_TYPE, request).handle((response, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                throw new CompletionException(new XmlRpcException("Failed to read server's response: " + cause.getMessage(), cause));
+            }
+            try (response) {
+                return readResult(response, null);
+            }
+            catch (IOException ioe) {
+                throw new CompletionException(new XmlRpcException("Failed to read server's response: " + ioe.getMessage(), ioe));
+            }
+            catch (XmlRpcException xe) {
+                throw new CompletionException(xe);
+            }
+        });
+    }
+
+    private Object call(String service, String method, List<Object> args, ElementHandler handler) throws XmlRpcException {
+        RequestBuffer request = RequestBuffer.acquire();
+        try {
+            serializeRequest(request, service, method, args);
+
+            try (OdooHttpResponse response = httpClient.post(uri, Map.of("Accept", CONTENT_TYPE), CONTENT_TYPE, request.size(),
+                    request::writeTo)) {
+
+                return readResult(response, handler);
+            }
+            catch (IOException e) {
+                throw new XmlRpcException("Failed to read server's response: " + e.getMessage(), e);
+            }
+        }
+        finally {
+            request.release();
+        }
+    }
+
+    private void serializeRequest(RequestBuffer request, String service, String method, List<Object> args) throws XmlRpcException {
+        try {
+            writeRequest(request, service, method, args);
+        }
+        catch (IOException e) {
+            throw new XmlRpcException("Unable to serialize JSON-RPC request: " + e.getMessage(), e);
+        }
+    }
+
+    private Object readResult(OdooHttpResponse response, ElementHandler handler) throws XmlRpcException {
+        OdooHttpStatusException.check(response);
+
+        try {
+            return readResponse(response, handler);
+        }
+        catch (IOException e) {
+            throw new XmlRpcException("Failed to read server's response: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeRequest(OutputStream out, String service, String method, List<Object> args) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("jsonrpc", "2.0");
+            generator.writeStringField("method", "call");
+            generator.writeObjectFieldStart("params");
+            generator.writeStringField("service", service);
+            generator.writeStringField("method", method);
+            generator.writeFieldName("args");
+            if (args instanceof ExecuteArguments) {
+                writeExecuteArguments(generator, (ExecuteArguments) args);
+            }
+            else {
+                writeValue(generator, args);
+            }
+            generator.writeEndObject();
+            generator.writeNumberField("id", requestIds.incrementAndGet());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the arguments like {@link #writeValue(JsonGenerator, Object)}, but the credentials as encoded once per session.
+     */
+    private void writeExecuteArguments(JsonGenerator generator, ExecuteArguments args) throws IOException {
+        Credentials credentials = args.getCredentials();
+        String encoded = credentials.jsonRpcArgs;
+        if (encoded == null) {
+            StringWriter writer = new StringWriter();
+            try (JsonGenerator credentialsGenerator = JSON_FACTORY.createGenerator(writer)) {
+                writeValue(credentialsGenerator, args.subList(0, ExecuteArguments.CREDENTIALS_SIZE));
+            }
+            // without the brackets of the array
+            encoded = writer.getBuffer().substring(1, writer.getBuffer().length() - 1);
+            credentials.jsonRpcArgs = encoded;
+        }
+
+        generator.writeStartArray();
+        generator.writeRawValue(encoded);
+        for (int i = ExecuteArguments.CREDENTIALS_SIZE; i < args.size(); i++) {
+            writeValue(generator, args.get(i));
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        }
+        else if (value instanceof String) {
+            generator.writeString((String) value);
+        }
+        else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Integer || value instanceof Long) {
+            generator.writeNumber(((Number) value).longValue());
+        }
+        else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        }
+        else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(entry.getKey().toString());
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+        else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object item : (Collection<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        }
+        else if (value instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object item : (Object[]) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        }
+        else if (value instanceof BinaryValue) {
+            byte[] bytes = ((BinaryValue) value).getBytes();
+            if (generator.getOutputTarget() instanceof RequestBuffer) {
+                // the buffer encodes large binaries while the body is sent
+                generator.writeRawValue("\"");
+                generator.flush();
+                ((RequestBuffer) generator.getOutputTarget()).writeBase64(bytes);
+                generator.writeRaw('"');
+            }
+            else {
+                generator.writeBinary(bytes);
+            }
+        }
+        else if (value instanceof int[]) {
+            int[] ints = (int[]) value;
+            generator.writeArray(ints, 0, ints.length);
+        }
+        else {
+            throw new IOException("Unsupported value type for JSON-RPC: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * @param handler if not null, the result must be an array whose elements are passed to the handler instead of
+     *                being returned
+     */
+    private Object readResponse(OdooHttpResponse response, ElementHandler handler) throws IOException, XmlRpcException {
+        Object result = null;
+        Map<?, ?> error = null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(response.getContent())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected JSON-RPC response object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+
+                if ("result".equals(name) && handler != null) {
+                    if (parser.currentToken() != JsonToken.START_ARRAY) {
+                        throw new JsonParseException(parser, "Expected an array as result");
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (!handler.handle(readValue(parser, false))) {
+                            response.abort();
+                            return null;
+                        }
+                    }
+                }
+                else if ("result".equals(name)) {
+                    result = readValue(parser, false);
+                }
+                else if ("error".equals(name)) {
+                    error = (Map<?, ?>) readValue(parser, false);
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (error != null) {
+            throw toException(error);
+        }
+        return result;
+    }
+
+    /**
+     * @param member whether the value is the value of an object field, arrays of fields only containing integers, i.e.
+     *               the ids of x2many fields, are returned as {@code int[]} then
+     */
+    private Object readValue(JsonParser parser, boolean member) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                Map<String, Object> struct = new HashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    struct.put(name, readValue(parser, true));
+                }
+                return struct;
+            case START_ARRAY:
+                return member ? readMemberArray(parser) : readArray(parser, new ArrayList<>());
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberType() == JsonParser.NumberType.INT ? (Object) parser.getIntValue() : (Object) parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonParseException(parser, "Unexpected JSON token " + parser.currentToken());
+        }
+    }
+
+    private Object[] readArray(JsonParser parser, List<Object> array) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            array.add(readValue(parser, false));
+        }
+        return array.toArray();
+    }
+
+    private Object readMemberArray(JsonParser parser) throws IOException {
+        int[] ints = new int[8];
+        int size = 0;
+        while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+            if (size == ints.length) {
+                ints = Arrays.copyOf(ints, size * 2);
+            }
+            ints[size++] = parser.getIntValue();
+        }
+        if (parser.currentToken() == JsonToken.END_ARRAY) {
+            return Arrays.copyOf(ints, size);
+        }
+
+        // not only integers, e.g. a many2one value (id and name)
+        List<Object> array = new ArrayList<>(size + 1);
+        for (int i = 0; i < size; i++) {
+            array.add(ints[i]);
+        }
+        array.add(readValue(parser, false));
+        return readArray(parser, array);
+    }
+
+    private XmlRpcException toException(Map<?, ?> error) {
+        // odoo puts the details of the server side exception into "data"
+        Object code = error.get("code");
+        Object message = error.get("message");
+        if (error.get("data") instanceof Map) {
+            Map<?, ?> data = (Map<?, ?>) error.get("data");
+            message = data.get("name") + ": " + data.get("message");
+        }
+        return new XmlRpcException(code instanceof Integer ? (Integer) code : 0, String.valueOf(message));
+    }
+
+}
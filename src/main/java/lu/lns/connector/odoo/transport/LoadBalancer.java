@@ -0,0 +1,198 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.Constants;
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooConstants;
+import lu.lns.connector.odoo.OdooMetrics;
+import lu.lns.connector.odoo.Utils;
+import org.identityconnectors.common.logging.Log;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Distributes requests over the odoo nodes configured in {@link OdooConfiguration#getUrl()}, see
+ * {@link OdooConfiguration#getLoadBalancing()}. Each node has its own {@link CircuitBreaker} and {@link RequestScheduler},
+ * so an unavailable or overloaded node does not affect requests to the others.
+ * <p>
+ * Nodes are skipped while their circuit breaker is open (passive health check) or the last active health check failed.
+ * The active health checks call the "version" method of the common service every
+ * {@link OdooConfiguration#getHealthCheckInterval()} in a background thread, which needs neither authentication nor a
+ * database. The liveness check of pooled connectors runs them on demand, see {@link #checkHealth(int)}. If no node is
+ * available, requests are sent to the nodes in turn nevertheless, so the circuit breakers decide whether to fail fast.
+ * With a single node there is nothing to balance and no periodic health checks are done. This class is thread-safe.
+ */
+class LoadBalancer {
+
+    private static final Log LOG = Log.getLog(LoadBalancer.class);
+
+    private static final byte[] HEALTH_CHECK_REQUEST = ("{\"jsonrpc\":\"2.0\",\"method\":\"call\",\"params\":"
+            + "{\"service\":\"common\",\"method\":\"version\",\"args\":[]}}").getBytes(StandardCharsets.UTF_8);
+
+    private static final AtomicInteger healthCheckThreadCount = new AtomicInteger();
+    private static final ScheduledThreadPoolExecutor healthChecks = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "odoo-health-check-" + healthCheckThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        healthChecks.setRemoveOnCancelPolicy(true);
+    }
+
+    private final List<Node> nodes;
+    private final boolean leastRequests;
+    private final HttpBackend backend;
+    private final int healthCheckInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Future<?> healthCheck;
+
+    LoadBalancer(OdooConfiguration configuration, HttpBackend backend, OdooMetrics metrics) {
+        this.nodes = Utils.splitUrls(configuration.getUrl()).stream()
+                .map(url -> new Node(url, configuration, metrics))
+                .collect(Collectors.toList());
+        this.leastRequests = Constants.LOAD_BALANCING_LEAST_REQUESTS.equals(configuration.getLoadBalancing());
+        this.backend = backend;
+        this.healthCheckInterval = configuration.getHealthCheckInterval();
+
+        this.healthCheck = nodes.size() > 1 && healthCheckInterval > 0
+                ? healthChecks.scheduleWithFixedDelay(() -> checkHealth(Constants.HEALTH_CHECK_TIMEOUT), 0, healthCheckInterval,
+                        TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * @return node to send the next request to
+     */
+    Node select() {
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+
+        // start at the next node in turn, so nodes with equal load are used alternately
+        int start = Math.floorMod(next.getAndIncrement(), nodes.size());
+        Node selected = null;
+        int selectedOutstanding = Integer.MAX_VALUE;
+
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get((start + i) % nodes.size());
+            if (!node.isAvailable()) {
+                continue;
+            }
+            if (!leastRequests) {
+                return node;
+            }
+
+            int outstanding = node.scheduler.getOutstanding();
+            if (outstanding < selectedOutstanding) {
+                selected = node;
+                selectedOutstanding = outstanding;
+            }
+        }
+        return selected != null ? selected : nodes.get(start);
+    }
+
+    /**
+     * Stops the health checks.
+     */
+    void close() {
+        if (healthCheck != null) {
+            healthCheck.cancel(false);
+        }
+    }
+
+    /**
+     * Checks the health of every node now, also of a single one, e.g. to find out whether a pooled connector can still
+     * reach odoo. Nodes failing the check are skipped until they pass a check again.
+     *
+     * @param timeout time in milliseconds each node may take to answer
+     * @return whether any node passed the check
+     */
+    synchronized boolean checkHealth(int timeout) {
+        for (Node node : nodes) {
+            boolean healthy;
+            try (OdooHttpResponse response = backend.send(URI.create(node.url + OdooConstants.JSONRPC),
+                    Map.of("Accept", "application/json"), "application/json", null, HEALTH_CHECK_REQUEST.length,
+                    out -> out.write(HEALTH_CHECK_REQUEST), Deadline.after(timeout))) {
+                healthy = response.getStatusCode() == 200;
+            }
+            catch (IOException | RuntimeException e) {
+                LOG.ok("Health check of odoo at {0} failed: {1}", node.url, e.getMessage());
+                healthy = false;
+            }
+
+            if (healthy && !node.healthy) {
+                LOG.info("Odoo at {0} passed the health check, sending requests to it again", node.url);
+                // the circuit breaker would reject requests until its open time has passed otherwise
+                node.circuitBreaker.onSuccess();
+            }
+            else if (!healthy && node.healthy) {
+                LOG.warn("Odoo at {0} failed the health check, not sending requests to it until it passes again", node.url);
+            }
+            node.healthy = healthy;
+        }
+        return nodes.stream().anyMatch(node -> node.healthy);
+    }
+
+    /**
+     * Odoo application node requests can be sent to.
+     */
+    class Node {
+
+        private final String url;
+        private final CircuitBreaker circuitBreaker;
+        private final RequestScheduler scheduler;
+        private final Semaphore streams;
+        private volatile boolean healthy = true;
+
+        private Node(String url, OdooConfiguration configuration, OdooMetrics metrics) {
+            this.url = url;
+            this.circuitBreaker = new CircuitBreaker(url, configuration, metrics);
+            this.scheduler = new RequestScheduler(url, configuration, metrics);
+            this.streams = new Semaphore(configuration.getMaxConnectionsPerHost());
+        }
+
+        CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        RequestScheduler getScheduler() {
+            return scheduler;
+        }
+
+        /**
+         * @return permits of the responses whose body is read after the request left the scheduler, see
+         * {@link OdooHttpClient#getMaxConnections(OdooConfiguration)}
+         */
+        Semaphore getStreams() {
+            return streams;
+        }
+
+        boolean isAvailable() {
+            return healthy && circuitBreaker.isAvailable();
+        }
+
+        /**
+         * @param uri address at the first configured node, as built by the protocols
+         * @return the same address at this node
+         */
+        URI resolve(URI uri) {
+            String primary = nodes.get(0).url;
+            String address = uri.toString();
+            return address.startsWith(primary) && this != nodes.get(0)
+                    ? URI.create(url + address.substring(primary.length()))
+                    : uri;
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.Constants;
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooMetrics;
+import org.identityconnectors.common.logging.Log;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Logs the requests sent to odoo and its responses for troubleshooting, either one in
+ * {@link OdooConfiguration#getMessageLogSampling()} calls or calls slower than
+ * {@link OdooConfiguration#getMessageLogSlowThreshold()}.
+ * <p>
+ * The bodies are passed through unchanged while the first {@link Constants#MESSAGE_LOG_MAX_SIZE} bytes are captured, so
+ * logging neither buffers complete responses nor changes what is parsed. The entry is written when the response is
+ * closed. Passwords and API keys are masked: the third argument of the call (the password of "authenticate" and
+ * "execute_kw") and values of fields named "password".
+ */
+class MessageLog {
+
+    private static final Log LOG = Log.getLog(MessageLog.class);
+
+    private static final String MASK = "***";
+
+    // XML-RPC: third <param> of the request, JSON-RPC: third element of "args", also matched if truncated
+    private static final Pattern XML_SECRET = Pattern.compile(
+            "(<params>\\s*(?:<param>.*?</param>\\s*){2}<param>\\s*<value>).*?(</value>|$)", Pattern.DOTALL);
+    private static final Pattern XML_PASSWORD = Pattern.compile("(<name>password</name>\\s*<value>).*?(</value>|$)", Pattern.DOTALL);
+    private static final String JSON_STRING = "\"(?:[^\"\\\\]|\\\\.)*(?:\"|$)";
+    private static final String JSON_VALUE = "(?:" + JSON_STRING + "|[^,\\]]*)";
+    private static final Pattern JSON_SECRET = Pattern.compile(
+            "(\"args\"\\s*:\\s*\\[\\s*" + JSON_VALUE + "\\s*,\\s*" + JSON_VALUE + "\\s*,\\s*)" + JSON_STRING);
+    private static final Pattern JSON_PASSWORD = Pattern.compile("(\"password\"\\s*:\\s*)" + JSON_STRING);
+
+    private final int sampling;
+    private final long slowThresholdNanos;
+    private final AtomicLong calls = new AtomicLong();
+
+    MessageLog(OdooConfiguration configuration) {
+        this.sampling = configuration.getMessageLogSampling();
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getMessageLogSlowThreshold());
+    }
+
+    /**
+     * @return entry capturing the call about to be sent, null if the call is not logged
+     */
+    Entry start() {
+        boolean sampled = sampling > 0 && calls.incrementAndGet() % sampling == 0;
+        if (!sampled && slowThresholdNanos <= 0) {
+            return null;
+        }
+        return new Entry(sampled);
+    }
+
+    static String mask(String message) {
+        String masked = XML_SECRET.matcher(message).replaceFirst("$1" + MASK + "$2");
+        masked = XML_PASSWORD.matcher(masked).replaceAll("$1" + MASK + "$2");
+        masked = JSON_SECRET.matcher(masked).replaceFirst("$1\"" + MASK + "\"");
+        return JSON_PASSWORD.matcher(masked).replaceAll("$1\"" + MASK + "\"");
+    }
+
+    /**
+     * Log entry of a single call.
+     */
+    class Entry {
+
+        private final boolean sampled;
+        private final long start = System.nanoTime();
+        private final Capture request = new Capture();
+        private final Capture response = new Capture();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Entry(boolean sampled) {
+            this.sampled = sampled;
+        }
+
+        /**
+         * @return stream writing to the given one and capturing the request body
+         */
+        OutputStream request(OutputStream out) {
+            return new FilterOutputStream(out) {
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    request.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    request.write(b, off, len);
+                }
+
+            };
+        }
+
+        void request(byte[] body) {
+            request.write(body, 0, body.length);
+        }
+
+        /**
+         * @return the response capturing its body while read, the entry is written when it is closed
+         */
+        OdooHttpResponse response(URI uri, OdooHttpResponse delegate, OdooMetrics metrics) {
+            return new LoggedResponse(this, uri, delegate, metrics);
+        }
+
+        /**
+         * Writes the entry if the call is sampled or slow, only once.
+         *
+         * @param outcome the status of the response or the failure of the call
+         */
+        void finish(URI uri, String outcome) {
+            long duration = System.nanoTime() - start;
+            if (finished.getAndSet(true) || !sampled && duration < slowThresholdNanos) {
+                return;
+            }
+            LOG.info("Odoo call to {0}: {1} in {2} ms\nrequest ({3} bytes): {4}\nresponse ({5} bytes): {6}", uri, outcome,
+                    TimeUnit.NANOSECONDS.toMillis(duration), request.size, request, response.size, response);
+        }
+
+    }
+
+    /**
+     * Keeps the first bytes written and counts all of them.
+     */
+    private static class Capture {
+
+        private final byte[] prefix = new byte[Constants.MESSAGE_LOG_MAX_SIZE];
+        private int length;
+        private long size;
+
+        synchronized void write(int b) {
+            if (length < prefix.length) {
+                prefix[length++] = (byte) b;
+            }
+            size++;
+        }
+
+        synchronized void write(byte[] b, int off, int len) {
+            int captured = Math.min(len, prefix.length - length);
+            System.arraycopy(b, off, prefix, length, captured);
+            length += captured;
+            size += len;
+        }
+
+        @Override
+        public synchronized String toString() {
+            String message = mask(new String(prefix, 0, length, StandardCharsets.UTF_8));
+            return size > length ? message + "..." : message;
+        }
+
+    }
+
+    /**
+     * Response capturing the decoded body while it is read by the protocol.
+     */
+    private static class LoggedResponse extends OdooHttpResponse {
+
+        private final Entry entry;
+        private final URI uri;
+        private final OdooHttpResponse response;
+
+        LoggedResponse(Entry entry, URI uri, OdooHttpResponse response, OdooMetrics metrics) {
+            super(metrics);
+            this.entry = entry;
+            this.uri = uri;
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        InputStream getRawContent() throws IOException {
+            return response.getRawContent();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(response.getContent()) {
+
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        entry.response.write(b);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    if (read > 0) {
+                        entry.response.write(b, off, read);
+                    }
+                    return read;
+                }
+
+            };
+        }
+
+        @Override
+        public void abort() {
+            try {
+                response.abort();
+            }
+            finally {
+                entry.finish(uri, "HTTP " + getStatusCode() + " (aborted)");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                response.close();
+            }
+            finally {
+                entry.finish(uri, "HTTP " + getStatusCode());
+            }
+        }
+
+    }
+
+}
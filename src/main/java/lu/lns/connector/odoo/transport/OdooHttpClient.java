@@ -0,0 +1,522 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.Constants;
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooMetrics;
+import lu.lns.connector.odoo.Utils;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.identityconnectors.common.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pooled HTTP client used to send API requests to odoo. Connections are kept alive and reused between calls. The HTTP
+ * implementation depends on {@link OdooConfiguration#getHttpClient()}: the blocking apache HTTP client (default, see
+ * {@link ApacheHttpBackend}) or the NIO based client of the JDK supporting non-blocking requests and HTTP/2 (see
+ * {@link JdkHttpBackend}).
+ * <p>
+ * Connector instances are pooled by the connector framework, so one instance of this client is shared by all connector
+ * instances with the same URL and connection settings, see {@link #acquire(OdooConfiguration)}. This class is thread-safe.
+ * <p>
+ * Responses are requested gzip compressed if {@link OdooConfiguration#isGzipResponses()} is set and request bodies are
+ * compressed depending on {@link OdooConfiguration#getGzipRequestThreshold()}. The bytes sent and received are counted in
+ * {@link #getMetrics()}, before and after compression, to be able to measure the saving.
+ * <p>
+ * Requests fail immediately while odoo is considered unavailable, see {@link CircuitBreaker}. Concurrent requests are
+ * limited and sent by {@link RequestPriority} of the current operation, interactive ones first, see
+ * {@link RequestScheduler}. With {@link OdooConfiguration#isAdaptiveConcurrency()} the limit adapts to what odoo can
+ * handle. If several odoo nodes are configured, requests are distributed over them, see {@link LoadBalancer}. Request
+ * URIs are given for the first node then and sent to the node selected.
+ * <p>
+ * Requests and responses are logged if enabled, see {@link MessageLog}.
+ */
+public class OdooHttpClient {
+
+    private static final Log LOG = Log.getLog(OdooHttpClient.class);
+
+    private static final Map<String, OdooHttpClient> sharedClients = new HashMap<>();
+
+    private final String key;
+    private final HttpBackend backend;
+    private final boolean gzipResponses;
+    private final int gzipRequestThreshold;
+    private final OdooMetrics metrics = new OdooMetrics();
+    private final LoadBalancer loadBalancer;
+    private final MessageLog messageLog;
+    private int references;
+
+    private OdooHttpClient(String key, OdooConfiguration configuration) {
+        this.key = key;
+        this.gzipResponses = configuration.isGzipResponses();
+        this.gzipRequestThreshold = configuration.getGzipRequestThreshold();
+        this.backend = Constants.HTTP_CLIENT_JDK.equals(configuration.getHttpClient())
+                ? new JdkHttpBackend(configuration, metrics)
+                : new ApacheHttpBackend(configuration, metrics);
+        this.loadBalancer = new LoadBalancer(configuration, backend, metrics);
+        this.messageLog = new MessageLog(configuration);
+    }
+
+    /**
+     * Returns the shared client for the URL and connection settings of the given configuration. Each call must be
+     * followed by a call to {@link #release()} when the client is not used anymore.
+     */
+    public static OdooHttpClient acquire(OdooConfiguration configuration) {
+        String key = String.join(",", Utils.splitUrls(configuration.getUrl())) + "|" + configuration.getMaxConnectionsPerHost() + "|"
+                + configuration.getConnectionIdleTimeout() + "|" + configuration.getConnectTimeout() + "|"
+                + configuration.getReadTimeout() + "|" + configuration.isGzipResponses() + "|"
+                + configuration.getGzipRequestThreshold() + "|" + configuration.getHttpClient() + "|" + configuration.isHttp2() + "|"
+                + configuration.getCircuitBreakerThreshold() + "|" + configuration.getCircuitBreakerOpenTime() + "|"
+                + configuration.isAdaptiveConcurrency() + "|" + configuration.getBulkRequestShare() + "|"
+                + configuration.getLoadBalancing() + "|" + configuration.getHealthCheckInterval() + "|"
+                + configuration.getMessageLogSampling() + "|" + configuration.getMessageLogSlowThreshold();
+
+        synchronized (sharedClients) {
+            OdooHttpClient client = sharedClients.computeIfAbsent(key, k -> new OdooHttpClient(k, configuration));
+            client.references++;
+            return client;
+        }
+    }
+
+    /**
+     * Releases the client acquired before. The underlying connections are closed when the client is not used by any
+     * connector instance anymore. Must be called once per {@link #acquire(OdooConfiguration)}, see
+     * {@link lu.lns.connector.odoo.OdooClient#close()}.
+     */
+    public void release() {
+        synchronized (sharedClients) {
+            if (references == 0) {
+                // closed already, a client acquired meanwhile for the same key is another instance
+                LOG.warn("HTTP client for {0} released more often than acquired", key);
+                return;
+            }
+            if (--references > 0) {
+                return;
+            }
+            sharedClients.remove(key, this);
+        }
+
+        loadBalancer.close();
+        try {
+            backend.close();
+        }
+        catch (IOException e) {
+            LOG.warn(e, "Unable to close HTTP client for {0}", key);
+        }
+    }
+
+    /**
+     * @return counters of all requests sent by this client
+     */
+    public OdooMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Checks now that odoo answers on every node, see {@link LoadBalancer#checkHealth(int)}.
+     *
+     * @param timeout time in milliseconds each node may take to answer
+     * @throws IOException if no node answers
+     */
+    public void checkAlive(int timeout) throws IOException {
+        if (!loadBalancer.checkHealth(timeout)) {
+            throw new IOException("No odoo node answered the liveness check");
+        }
+    }
+
+    /**
+     * Sends a POST request. The returned response must be closed to give the connection back to the pool. The request
+     * is aborted when the {@link Deadline#current()} deadline passes and waits behind requests of higher
+     * {@link RequestPriority#current()} priority.
+     *
+     * @param contentLength length of the body or -1 if unknown (body is sent chunked then, and compressed if request
+     *                      compression is enabled at all)
+     */
+    public OdooHttpResponse post(URI uri, Map<String, String> headers, String contentType, long contentLength, BodyWriter requestBody)
+            throws IOException {
+
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            deadline.check();
+        }
+
+        MessageLog.Entry log = messageLog.start();
+        BodyWriter body = log != null ? out -> requestBody.write(log.request(out)) : requestBody;
+
+        boolean compress = gzipRequestThreshold > 0 && (contentLength < 0 || contentLength >= gzipRequestThreshold);
+        BodyWriter entityBody;
+        long entityLength;
+
+        if (!compress) {
+            entityLength = contentLength;
+            entityBody = out -> body.write(new CountingOutputStream(new CountingOutputStream(out, metrics.getBytesSent()),
+                    metrics.getBytesSentUncompressed()));
+        }
+        else if (contentLength < 0) {
+            entityLength = -1;
+            entityBody = out -> {
+                GZIPOutputStream gzip = new GZIPOutputStream(new CountingOutputStream(out, metrics.getBytesSent()));
+                body.write(new CountingOutputStream(gzip, metrics.getBytesSentUncompressed()));
+                gzip.finish();
+            };
+        }
+        else {
+            // compressed in advance as the compressed length needs to be sent as Content-Length
+            byte[] compressed = compress(contentLength, body);
+            entityLength = compressed.length;
+            entityBody = out -> {
+                out.write(compressed);
+                metrics.getBytesSent().add(compressed.length);
+            };
+        }
+
+        LoadBalancer.Node node = loadBalancer.select();
+        URI nodeUri = node.resolve(uri);
+        RequestScheduler.Permit permit = acquirePermit(node.getScheduler(), deadline);
+        try {
+            node.getCircuitBreaker().acquire();
+        }
+        catch (CircuitBreakerOpenException e) {
+            permit.release();
+            throw e;
+        }
+
+        metrics.getRequests().increment();
+        OdooHttpResponse response;
+        try {
+            response = backend.send(nodeUri, withAcceptEncoding(headers), contentType, compress ? "gzip" : null, entityLength,
+                    entityBody, deadline);
+        }
+        catch (IOException | RuntimeException e) {
+            onFailure(node, permit, e);
+            permit.release();
+            if (log != null) {
+                log.finish(nodeUri, e.toString());
+            }
+            throw e;
+        }
+        node.getCircuitBreaker().onResponse(response.getStatusCode());
+        permit.onResponse(OdooHttpStatusException.isTransient(response.getStatusCode()));
+        // odoo is done with the request, and a streamed response must not hold a permit its handler needs for its calls
+        permit.release();
+        try {
+            response = detach(node, response);
+        }
+        catch (IOException | RuntimeException e) {
+            if (log != null) {
+                log.finish(nodeUri, e.toString());
+            }
+            throw e;
+        }
+        return log != null ? log.response(nodeUri, response, metrics) : response;
+    }
+
+    /**
+     * Returns the response to be read after the request left the scheduler. It keeps its connection while a stream
+     * permit of the node is free, otherwise its body is read into memory and the connection given back, so the
+     * connections of the node always suffice for the requests the scheduler lets through, interactive ones included.
+     */
+    private OdooHttpResponse detach(LoadBalancer.Node node, OdooHttpResponse response) throws IOException {
+        if (node.getStreams().tryAcquire()) {
+            return new StreamedResponse(response, node.getStreams(), metrics);
+        }
+
+        metrics.getResponsesBuffered().increment();
+        try (OdooHttpResponse buffered = response) {
+            InputStream raw = buffered.getRawContent();
+            return new BufferedResponse(buffered, raw != null ? raw.readAllBytes() : null, metrics);
+        }
+    }
+
+    /**
+     * @return number of connections to open at most to the odoo nodes: per node the requests in flight, at most
+     * {@link OdooConfiguration#getMaxConnectionsPerHost()}, and as many responses whose body is still being read, see
+     * {@link LoadBalancer.Node#getStreams()}. Further responses are read into memory, which trades memory for never
+     * waiting for a connection behind long running searches.
+     */
+    static int getMaxConnections(OdooConfiguration configuration) {
+        return 2 * configuration.getMaxConnectionsPerHost() * Utils.splitUrls(configuration.getUrl()).size();
+    }
+
+    /**
+     * Sends a POST request without blocking the calling thread, if supported by the HTTP implementation. The future
+     * completes with the complete response, which holds no connection but should be closed to finish its entry in the
+     * message log. The future fails when the {@link Deadline#current()} deadline passes. The request is scheduled by
+     * {@link RequestPriority#current()}.
+     */
+    public CompletableFuture<OdooHttpResponse> postAsync(URI uri, Map<String, String> headers, String contentType, byte[] body) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException(null));
+        }
+
+        boolean compress = gzipRequestThreshold > 0 && body.length >= gzipRequestThreshold;
+        byte[] entityBody = body;
+
+        if (compress) {
+            try {
+                entityBody = compress(body.length, out -> out.write(body));
+            }
+            catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        else {
+            metrics.getBytesSentUncompressed().add(body.length);
+        }
+
+        MessageLog.Entry log = messageLog.start();
+        if (log != null) {
+            log.request(body);
+        }
+
+        byte[] sentBody = entityBody;
+        LoadBalancer.Node node = loadBalancer.select();
+        URI nodeUri = node.resolve(uri);
+        CompletableFuture<RequestScheduler.Permit> permit = node.getScheduler().acquire(RequestPriority.current());
+        return withDeadline(deadline, permit.thenCompose(p -> {
+            try {
+                if (deadline != null) {
+                    deadline.check();
+                }
+                node.getCircuitBreaker().acquire();
+            }
+            catch (IOException e) {
+                p.release();
+                return CompletableFuture.failedFuture(e);
+            }
+
+            metrics.getBytesSent().add(sentBody.length);
+            metrics.getRequests().increment();
+            return backend.sendAsync(nodeUri, withAcceptEncoding(headers), contentType, compress ? "gzip" : null, sentBody,
+                    deadline).whenComplete((response, e) -> {
+                        if (e != null) {
+                            onFailure(node, p, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                        }
+                        else {
+                            node.getCircuitBreaker().onResponse(response.getStatusCode());
+                            p.onResponse(OdooHttpStatusException.isTransient(response.getStatusCode()));
+                        }
+                        // the body has been received completely
+                        p.release();
+                    });
+        })).whenComplete((response, e) -> {
+            if (log != null && e != null) {
+                log.finish(nodeUri, (e instanceof CompletionException ? e.getCause() : e).toString());
+            }
+        }).thenApply(response -> log != null ? log.response(nodeUri, response, metrics) : response);
+    }
+
+    /**
+     * Records a failed request with the circuit breaker and the scheduler of the node, unless the request was ended by
+     * the client, e.g. when the deadline passed, the request was cancelled or the thread interrupted, which tells nothing
+     * about the health of odoo.
+     */
+    private static void onFailure(LoadBalancer.Node node, RequestScheduler.Permit permit, Throwable e) {
+        boolean serverFailure = e instanceof IOException && !(e instanceof DeadlineExceededException)
+                && (!(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException);
+        if (serverFailure) {
+            node.getCircuitBreaker().onFailure();
+            permit.onResponse(true);
+        }
+        else {
+            node.getCircuitBreaker().onAbort();
+        }
+    }
+
+    /**
+     * @return future failing when the deadline passes before the given future completes
+     */
+    private static <T> CompletableFuture<T> withDeadline(Deadline deadline, CompletableFuture<T> future) {
+        if (deadline == null) {
+            return future;
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> expiry = Deadline.onExpiry(deadline, () -> result.completeExceptionally(new DeadlineExceededException(null)));
+        future.whenComplete((value, e) -> {
+            expiry.cancel(false);
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+            else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    private static RequestScheduler.Permit acquirePermit(RequestScheduler scheduler, Deadline deadline) throws IOException {
+        CompletableFuture<RequestScheduler.Permit> permit = scheduler.acquire(RequestPriority.current());
+        try {
+            return deadline != null ? permit.get(Deadline.timeout(deadline, 0), TimeUnit.MILLISECONDS) : permit.get();
+        }
+        catch (TimeoutException e) {
+            permit.thenAccept(RequestScheduler.Permit::release);
+            throw new DeadlineExceededException(e);
+        }
+        catch (InterruptedException e) {
+            // the permit might be granted nevertheless
+            permit.thenAccept(RequestScheduler.Permit::release);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request to odoo");
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private byte[] compress(long contentLength, BodyWriter body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) contentLength / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            body.write(new CountingOutputStream(gzip, metrics.getBytesSentUncompressed()));
+        }
+        return compressed.toByteArray();
+    }
+
+    private Map<String, String> withAcceptEncoding(Map<String, String> headers) {
+        if (!gzipResponses) {
+            return headers;
+        }
+        Map<String, String> result = new HashMap<>(headers);
+        result.put("Accept-Encoding", "gzip");
+        return result;
+    }
+
+    /**
+     * Response holding a stream permit of its node until closed.
+     */
+    private static final class StreamedResponse extends OdooHttpResponse {
+
+        private final OdooHttpResponse response;
+        private final Semaphore streams;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        StreamedResponse(OdooHttpResponse response, Semaphore streams, OdooMetrics metrics) {
+            super(metrics);
+            this.response = response;
+            this.streams = streams;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        InputStream getRawContent() throws IOException {
+            return response.getRawContent();
+        }
+
+        @Override
+        public void abort() {
+            try {
+                response.abort();
+            }
+            finally {
+                release();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                response.close();
+            }
+            finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                streams.release();
+            }
+        }
+
+    }
+
+    /**
+     * Response whose body has been read into memory, its connection is given back already.
+     */
+    private static final class BufferedResponse extends OdooHttpResponse {
+
+        private final OdooHttpResponse response;
+        private final byte[] body;
+
+        BufferedResponse(OdooHttpResponse response, byte[] body, OdooMetrics metrics) {
+            super(metrics);
+            this.response = response;
+            this.body = body;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        InputStream getRawContent() {
+            return body != null ? new ByteArrayInputStream(body) : null;
+        }
+
+        @Override
+        public void abort() {
+            // nothing to abort, the body has been read
+        }
+
+        @Override
+        public void close() {
+            // the connection has been given back already
+        }
+
+    }
+
+    /**
+     * Writes the body of an HTTP request.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+
+        void write(OutputStream out) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Response of an {@link OdooHttpClient} request. Closing the response gives the connection back to the pool. Gzip
+ * compressed bodies are decoded transparently. There is one implementation per HTTP backend, see
+ * {@link ApacheHttpBackend} and {@link JdkHttpBackend}.
+ */
+public abstract class OdooHttpResponse implements Closeable {
+
+    private final OdooMetrics metrics;
+
+    OdooHttpResponse(OdooMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public abstract int getStatusCode();
+
+    public abstract String getReasonPhrase();
+
+    /**
+     * @return value of the first header with the given name or null if not present
+     */
+    public abstract String getHeader(String name);
+
+    /**
+     * @return the response body as received, null if the response has no body
+     */
+    abstract InputStream getRawContent() throws IOException;
+
+    /**
+     * @return the decoded response body, an empty stream if the response has no body
+     */
+    public InputStream getContent() throws IOException {
+        InputStream raw = getRawContent();
+        if (raw == null) {
+            return InputStream.nullInputStream();
+        }
+
+        InputStream content = new CountingInputStream(raw, metrics.getBytesReceived());
+        if ("gzip".equalsIgnoreCase(getHeader("Content-Encoding"))) {
+            content = new GZIPInputStream(content, 8192);
+        }
+        return new CountingInputStream(content, metrics.getBytesReceivedUncompressed());
+    }
+
+    /**
+     * Stops reading the response, e.g. if the rest of a large body is not needed anymore. The connection is closed
+     * instead of reading the remaining body to be able to give it back to the pool.
+     */
+    public abstract void abort();
+
+}
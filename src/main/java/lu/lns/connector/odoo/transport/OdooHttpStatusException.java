@@ -0,0 +1,70 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.client.XmlRpcHttpTransportException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * HTTP status other than 2xx received from odoo or a proxy in front of it. Keeps the delay requested with header
+ * "Retry-After", e.g. along with status 503 while odoo is restarting.
+ */
+public class OdooHttpStatusException extends XmlRpcHttpTransportException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfter;
+
+    OdooHttpStatusException(int status, String reasonPhrase, long retryAfter) {
+        super(status, reasonPhrase);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Throws an exception if the response does not have a successful status.
+     */
+    static void check(OdooHttpResponse response) throws OdooHttpStatusException {
+        int status = response.getStatusCode();
+        if (status < 200 || status > 299) {
+            throw new OdooHttpStatusException(status, response.getReasonPhrase(), parseRetryAfter(response.getHeader("Retry-After")));
+        }
+    }
+
+    /**
+     * @return whether the status is sent by odoo or a proxy while odoo is temporarily overloaded or unavailable
+     */
+    public static boolean isTransient(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * @return milliseconds to wait before retrying as requested by the server, -1 if not given
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    private static long parseRetryAfter(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        // either delay in seconds or HTTP date
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        }
+        catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(Instant.now(), date).toMillis());
+            }
+            catch (DateTimeParseException e2) {
+                return -1;
+            }
+        }
+    }
+
+}
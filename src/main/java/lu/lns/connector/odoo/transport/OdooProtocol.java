@@ -0,0 +1,90 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Protocol used to call the external API of odoo. Odoo offers the same services via XML-RPC and JSON-RPC, see
+ * {@link XmlRpcProtocol} and {@link JsonRpcProtocol}. Both deliver results in the same representation, i.e. arrays as
+ * <code>Object[]</code>, structs as <code>Map&lt;String, Object&gt;</code> and numbers as {@link Integer}, {@link Long} or
+ * {@link Double}. Arrays that are values of struct members and only contain integers, e.g. the ids of x2many fields, are
+ * delivered as <code>int[]</code> instead, and the member names are shared by all structs of a result.
+ * <p>
+ * Errors are reported as {@link XmlRpcException} regardless of the protocol, so exception handling is the same for all
+ * protocols.
+ */
+public interface OdooProtocol {
+
+    /**
+     * Service providing methods without authentication, e.g. "version" or "authenticate".
+     */
+    String SERVICE_COMMON = "common";
+
+    /**
+     * Service providing "execute_kw" to call model methods.
+     */
+    String SERVICE_OBJECT = "object";
+
+    /**
+     * Calls a method of an odoo service.
+     *
+     * @param service odoo service, see constants of this interface
+     * @param method  method of the service to call
+     * @param args    positional arguments of the method
+     * @return result of the call
+     */
+    Object execute(String service, String method, List<Object> args) throws XmlRpcException;
+
+    /**
+     * Calls a method of an odoo service without blocking the calling thread, if supported by the protocol and the HTTP
+     * client, see {@link lu.lns.connector.odoo.OdooConfiguration#getHttpClient()}. Meant to run independent calls
+     * concurrently. This default implementation executes the call synchronously.
+     *
+     * @return future completed with the result of the call, or completed exceptionally with an {@link XmlRpcException}
+     */
+    default CompletableFuture<Object> executeAsync(String service, String method, List<Object> args) {
+        try {
+            return CompletableFuture.completedFuture(execute(service, method, args));
+        }
+        catch (XmlRpcException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Calls a method of an odoo service returning an array, e.g. "search_read", and passes each element of the array to
+     * the handler as soon as it has been parsed. So the whole result is never held in memory at once, neither the raw
+     * response nor the parsed values. This default implementation does not stream, it is overridden by the protocols
+     * supporting it.
+     *
+     * @param handler receives the elements of the result, may stop the retrieval of further elements
+     */
+    default void executeStreaming(String service, String method, List<Object> args, ElementHandler handler) throws XmlRpcException {
+        Object result = execute(service, method, args);
+        if (!(result instanceof Object[])) {
+            throw new XmlRpcException("Expected an array as result of " + method + " but got " + result);
+        }
+
+        for (Object element : (Object[]) result) {
+            if (!handler.handle(element)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Receives the elements of an array result, see {@link #executeStreaming(String, String, List, ElementHandler)}.
+     */
+    @FunctionalInterface
+    interface ElementHandler {
+
+        /**
+         * @return true to continue, false to stop retrieving elements (the rest of the response is discarded then)
+         */
+        boolean handle(Object element);
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package lu.lns.connector.odoo.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Buffer a request body is serialized into before it is sent, as odoo does not accept chunked requests in all versions
+ * and the length has to be known in advance. Each thread reuses its buffer for consecutive requests instead of
+ * allocating and growing a new one per request, see {@link #acquire()}. Not thread-safe.
+ * <p>
+ * Large binaries are not copied into the buffer: their position is recorded and they are base64 encoded while the body
+ * is written to the connection, see {@link #writeBase64(byte[])}. The length of the body is known all the same.
+ */
+final class RequestBuffer extends OutputStream {
+
+    private static final int INITIAL_SIZE = 8192;
+
+    // larger buffers, e.g. of requests uploading binaries, are not kept for the next request
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    // smaller binaries are encoded into the buffer right away
+    private static final int MIN_DEFERRED_SIZE = 16 * 1024;
+
+    private static final ThreadLocal<RequestBuffer> buffers = new ThreadLocal<>();
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int count;
+
+    // binaries to be encoded at their offset in the buffer while the body is written
+    private final List<Deferred> deferred = new ArrayList<>();
+    private long deferredLength;
+
+    private RequestBuffer() {
+    }
+
+    /**
+     * @return the buffer of the current thread, or a new one if it is in use already, e.g. by an enclosing call; must be
+     * given back with {@link #release()}
+     */
+    static RequestBuffer acquire() {
+        RequestBuffer buffer = buffers.get();
+        if (buffer == null) {
+            return new RequestBuffer();
+        }
+        buffers.remove();
+        return buffer;
+    }
+
+    /**
+     * Gives the buffer back to the current thread for the next request. Not done by {@link #close()}, which is called by
+     * writers when they are closed.
+     */
+    void release() {
+        if (buf.length <= MAX_RETAINED_SIZE) {
+            count = 0;
+            deferred.clear();
+            deferredLength = 0;
+            buffers.set(this);
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes the characters of an ASCII string, e.g. markup.
+     */
+    void writeAscii(String s) {
+        int length = s.length();
+        ensureCapacity(count + length);
+        for (int i = 0; i < length; i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Makes room for the given number of bytes, to be written with {@link #put(int)}.
+     */
+    void reserve(int length) {
+        ensureCapacity(count + length);
+    }
+
+    /**
+     * Writes a byte without checking the capacity, see {@link #reserve(int)}.
+     */
+    void put(int b) {
+        buf[count++] = (byte) b;
+    }
+
+    /**
+     * Writes the bytes base64 encoded, large ones only when the body is written, so they must not be changed until then.
+     */
+    void writeBase64(byte[] bytes) throws IOException {
+        if (bytes.length < MIN_DEFERRED_SIZE) {
+            ensureCapacity(count + (int) BinaryValue.encodedLength(bytes.length));
+            try (OutputStream encoder = Base64.getEncoder().wrap(new Unclosable(this))) {
+                encoder.write(bytes);
+            }
+        }
+        else {
+            deferred.add(new Deferred(count, bytes));
+            deferredLength += BinaryValue.encodedLength(bytes.length);
+        }
+    }
+
+    long size() {
+        return count + deferredLength;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        int written = 0;
+        for (Deferred binary : deferred) {
+            out.write(buf, written, binary.offset - written);
+            written = binary.offset;
+            // encoded in small chunks straight to the connection
+            try (OutputStream encoder = Base64.getEncoder().wrap(new Unclosable(out))) {
+                encoder.write(binary.bytes);
+            }
+        }
+        out.write(buf, written, count - written);
+    }
+
+    byte[] toByteArray() {
+        if (deferred.isEmpty()) {
+            return Arrays.copyOf(buf, count);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.toIntExact(size()));
+        try {
+            writeTo(bytes);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+        }
+    }
+
+    private static final class Deferred {
+
+        private final int offset;
+        private final byte[] bytes;
+
+        Deferred(int offset, byte[] bytes) {
+            this.offset = offset;
+            this.bytes = bytes;
+        }
+
+    }
+
+    /**
+     * Passes the bytes on, but not the closing of the stream, as base64 encoding streams need to be closed to write the
+     * padding.
+     */
+    private static final class Unclosable extends FilterOutputStream {
+
+        Unclosable(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+}
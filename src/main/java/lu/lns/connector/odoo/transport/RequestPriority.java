@@ -0,0 +1,40 @@
+package lu.lns.connector.odoo.transport;
+
+/**
+ * Class of the API requests of a connector operation, deciding which waiting requests are sent to odoo first, see
+ * {@link RequestScheduler}. The priority of the current operation is bound to the thread executing it with
+ * {@link #activate(RequestPriority)} and picked up by the {@link OdooHttpClient}, like the {@link Deadline}.
+ */
+public enum RequestPriority {
+
+    /**
+     * Requests of operations on single records a user might be waiting for: create, update, delete and getting a record
+     * by its uid. Default if no priority is bound to the thread.
+     */
+    INTERACTIVE,
+
+    /**
+     * Requests of searches returning many records, e.g. during reconciliation, and of fetching the schema.
+     */
+    BULK;
+
+    private static final ThreadLocal<RequestPriority> current = new ThreadLocal<>();
+
+    /**
+     * @return priority bound to the current thread, {@link #INTERACTIVE} if none
+     */
+    public static RequestPriority current() {
+        RequestPriority priority = current.get();
+        return priority != null ? priority : INTERACTIVE;
+    }
+
+    /**
+     * Binds the priority to the current thread until the returned scope is closed.
+     */
+    public static Scope activate(RequestPriority priority) {
+        RequestPriority previous = current.get();
+        current.set(priority);
+        return () -> current.set(previous);
+    }
+
+}
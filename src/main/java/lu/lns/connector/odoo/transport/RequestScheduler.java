@@ -0,0 +1,241 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooMetrics;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides when requests are sent to odoo. The number of requests in flight is limited, requests exceeding the limit wait
+ * in a queue per {@link RequestPriority} without blocking a thread:
+ * <ul>
+ * <li>interactive requests are sent before waiting bulk requests and may use the whole limit</li>
+ * <li>bulk requests may use at most {@link OdooConfiguration#getBulkRequestShare()} percent of the limit (at least one
+ * request), the rest is kept free for interactive requests, so these do not wait for long running searches</li>
+ * </ul>
+ * A request is in flight until its response headers have been received, odoo is done with it then. The body of a
+ * streamed response may take much longer to be read, e.g. while the records of a search are handled, and the handler
+ * may call odoo itself, so it must not hold a permit meanwhile. The connection of such a response is not counted here,
+ * the connection pool has room for as many of them as requests in flight, further responses are read into memory, see
+ * {@link OdooHttpClient#getMaxConnections(OdooConfiguration)}. So a request let through never waits for a connection.
+ * <p>
+ * The limit is {@link OdooConfiguration#getMaxConnectionsPerHost()}. With {@link OdooConfiguration#isAdaptiveConcurrency()}
+ * it is reduced to what odoo can process without queueing requests internally, which would only increase latency and
+ * lead to timeouts. The limit is adjusted from the measured latency then, similar to TCP congestion control:
+ * <ul>
+ * <li>the lowest latency seen recently is taken as latency of an idle odoo. As long as the average latency stays
+ * below {@link #TOLERANCE} times that, requests are not queued by odoo, so the limit grows by one per "round trip"
+ * (additive increase)</li>
+ * <li>if the average latency exceeds that, the limit shrinks in proportion ("gradient")</li>
+ * <li>on failures indicating an overloaded server (timeouts, connection errors, HTTP status 429, 502, 503 and 504) the
+ * limit is reduced by a fixed factor (multiplicative decrease)</li>
+ * </ul>
+ * The adaptive limit stays between 1 and {@link OdooConfiguration#getMaxConnectionsPerHost()}. The latency of a request
+ * is measured until the response headers are received, after that odoo is done with the request. As requests of very
+ * different cost, e.g. a search of all records, also take longer without any queueing, the decrease per request is
+ * bounded. One scheduler is shared by all users of an {@link OdooHttpClient}. This class is thread-safe.
+ */
+class RequestScheduler {
+
+    private static final Log LOG = Log.getLog(RequestScheduler.class);
+
+    // average latency over about 10 requests
+    private static final double SMOOTHING = 0.1;
+
+    // average latency may be this much higher than the lowest one before the limit is reduced
+    private static final double TOLERANCE = 2.0;
+
+    // the lowest latency is forgotten slowly (doubles after about 700 requests) in case odoo got slower permanently
+    private static final double MIN_LATENCY_DRIFT = 1.001;
+
+    // limit is reduced to this share on failures
+    private static final double DECREASE_FACTOR = 0.75;
+
+    private final String endpoint;
+    private final int maxLimit;
+    private final boolean adaptive;
+    private final int bulkShare;
+    private final OdooMetrics metrics;
+    private final Queue<CompletableFuture<Permit>> waitingInteractive = new ArrayDeque<>();
+    private final Queue<CompletableFuture<Permit>> waitingBulk = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private int bulkInFlight;
+    private double averageLatency;
+    private double minLatency;
+
+    RequestScheduler(String endpoint, OdooConfiguration configuration, OdooMetrics metrics) {
+        this.endpoint = endpoint;
+        this.maxLimit = configuration.getMaxConnectionsPerHost();
+        this.adaptive = configuration.isAdaptiveConcurrency();
+        this.bulkShare = configuration.getBulkRequestShare();
+        this.metrics = metrics;
+        this.limit = adaptive ? Math.max(1, maxLimit / 2) : maxLimit;
+    }
+
+    /**
+     * @return future completing with the permit to send a request, which must be released when the response headers
+     * have been received or the request failed
+     */
+    CompletableFuture<Permit> acquire(RequestPriority priority) {
+        CompletableFuture<Permit> permit;
+        synchronized (this) {
+            if (maySend(priority)) {
+                return CompletableFuture.completedFuture(grant(priority));
+            }
+            permit = new CompletableFuture<>();
+            (priority == RequestPriority.BULK ? waitingBulk : waitingInteractive).add(permit);
+        }
+        metrics.getRequestsQueued().increment();
+        return permit;
+    }
+
+    /**
+     * @return current limit of concurrent requests
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return number of requests in flight or waiting
+     */
+    synchronized int getOutstanding() {
+        return inFlight + waitingInteractive.size() + waitingBulk.size();
+    }
+
+    private boolean maySend(RequestPriority priority) {
+        return inFlight < (int) limit
+                && (priority == RequestPriority.INTERACTIVE || bulkInFlight < Math.max(1, (int) limit * bulkShare / 100));
+    }
+
+    private Permit grant(RequestPriority priority) {
+        inFlight++;
+        if (priority == RequestPriority.BULK) {
+            bulkInFlight++;
+        }
+        return new Permit(priority);
+    }
+
+    /**
+     * @param overloaded whether the request failed because odoo seems to be overloaded
+     */
+    private void onResponse(long latencyNanos, boolean overloaded) {
+        if (!adaptive) {
+            return;
+        }
+
+        List<Runnable> next;
+        synchronized (this) {
+            int oldLimit = (int) limit;
+            if (overloaded) {
+                limit = Math.max(1, limit * DECREASE_FACTOR);
+            }
+            else {
+                adjustLimit(latencyNanos);
+            }
+            if ((int) limit == oldLimit) {
+                return;
+            }
+            LOG.ok("Concurrency limit for {0} changed from {1} to {2}", endpoint, oldLimit, (int) limit);
+            next = sendWaiting();
+        }
+        // outside of the lock as completing runs the dependent requests
+        next.forEach(Runnable::run);
+    }
+
+    private void release(RequestPriority priority) {
+        List<Runnable> next;
+        synchronized (this) {
+            inFlight--;
+            if (priority == RequestPriority.BULK) {
+                bulkInFlight--;
+            }
+            next = sendWaiting();
+        }
+        next.forEach(Runnable::run);
+    }
+
+    /**
+     * @return actions completing the permits granted to waiting requests, interactive ones first
+     */
+    private List<Runnable> sendWaiting() {
+        List<Runnable> next = new ArrayList<>();
+        while (!waitingInteractive.isEmpty() && maySend(RequestPriority.INTERACTIVE)) {
+            CompletableFuture<Permit> permit = waitingInteractive.poll();
+            Permit granted = grant(RequestPriority.INTERACTIVE);
+            next.add(() -> permit.complete(granted));
+        }
+        while (!waitingBulk.isEmpty() && maySend(RequestPriority.BULK)) {
+            CompletableFuture<Permit> permit = waitingBulk.poll();
+            Permit granted = grant(RequestPriority.BULK);
+            next.add(() -> permit.complete(granted));
+        }
+        return next;
+    }
+
+    private void adjustLimit(long latencyNanos) {
+        if (minLatency == 0) {
+            minLatency = latencyNanos;
+            averageLatency = latencyNanos;
+        }
+        minLatency = Math.min(latencyNanos, minLatency * MIN_LATENCY_DRIFT);
+        averageLatency += (latencyNanos - averageLatency) * SMOOTHING;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minLatency / averageLatency));
+        if (gradient < 1.0) {
+            limit = Math.max(1, limit * (1 - SMOOTHING * (1 - gradient)));
+        }
+        else if (inFlight >= limit / 2) {
+            // only if the limit is used, otherwise the latency tells nothing about more requests
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Permit to send one request.
+     */
+    class Permit {
+
+        private final RequestPriority priority;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean responded = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(RequestPriority priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * Records the response headers being received or the request having failed, the time since the permit has been
+         * granted is taken as latency of the request.
+         *
+         * @param overloaded whether the request failed because odoo seems to be overloaded
+         */
+        void onResponse(boolean overloaded) {
+            if (responded.compareAndSet(false, true)) {
+                RequestScheduler.this.onResponse(System.nanoTime() - start, overloaded);
+            }
+        }
+
+        /**
+         * Releases the permit when the response headers have been received (or the whole response of an asynchronous
+         * request, which is buffered anyway), the request failed or has not been sent at all. The latency is not
+         * measured unless {@link #onResponse(boolean)} has been called before.
+         */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                RequestScheduler.this.release(priority);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package lu.lns.connector.odoo.transport;
+
+/**
+ * Binding of a value to the current thread, e.g. by {@link Deadline#activate(Deadline)}. Closing it restores the
+ * previous binding.
+ */
+@FunctionalInterface
+public interface Scope extends AutoCloseable {
+
+    @Override
+    void close();
+
+}
@@ -0,0 +1,127 @@
+package lu.lns.connector.odoo.transport;
+
+import lu.lns.connector.odoo.OdooConfiguration;
+import lu.lns.connector.odoo.OdooConstants;
+import lu.lns.connector.odoo.Utils;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.client.XmlRpcClientException;
+import org.identityconnectors.framework.common.exceptions.ConfigurationException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Calls the odoo API via XML-RPC, see https://www.odoo.com/documentation/14.0/webservices/odoo.html.
+ * <p>
+ * Requests are written by {@link XmlRpcRequestWriter} into a reused {@link RequestBuffer} and responses are parsed with
+ * the pull parser {@link XmlRpcResponseReader}, which also supports streaming of array results, see
+ * {@link #executeStreaming(String, String, List, ElementHandler)}.
+ */
+public class XmlRpcProtocol implements OdooProtocol {
+
+    private static final String CONTENT_TYPE = "text/xml";
+
+    private final OdooHttpClient httpClient;
+    private final Map<String, URI> serviceUris;
+
+    public XmlRpcProtocol(OdooConfiguration configuration, OdooHttpClient httpClient) {
+        this.httpClient = httpClient;
+        String url = Utils.splitUrls(configuration.getUrl()).get(0);
+        try {
+            this.serviceUris = Map.of(
+                    SERVICE_COMMON, new URI(url + OdooConstants.XMLRPC_COMMON),
+                    SERVICE_OBJECT, new URI(url + OdooConstants.XMLRPC_OBJECT));
+        }
+        catch (URISyntaxException e) {
+            throw new ConfigurationException("Invalid server URL", e);
+        }
+    }
+
+    @Override
+    public Object execute(String service, String method, List<Object> args) throws XmlRpcException {
+        return call(service, method, args, null);
+    }
+
+    @Override
+    public void executeStreaming(String service, String method, List<Object> args, ElementHandler handler) throws XmlRpcException {
+        call(service, method, args, handler);
+    }
+
+    @Override
+    public CompletableFuture<Object> executeAsync(String service, String method, List<Object> args) {
+        byte[] request;
+        RequestBuffer buffer = RequestBuffer.acquire();
+        try {
+            XmlRpcRequestWriter.write(buffer, method, args);
+            // the buffer is reused before the request is sent
+            request = buffer.toByteArray();
+        }
+        catch (XmlRpcException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        finally {
+            buffer.release();
+        }
+
+        return httpClient.postAsync(serviceUris.get(service), Map.of(), CONTENT_TYPE, request).handle((response, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                throw new CompletionException(new XmlRpcClientException("Failed to read server's response: " + cause.getMessage(), cause));
+            }
+            try (response) {
+                OdooHttpStatusException.check(response);
+                return XmlRpcResponseReader.readResult(response.getContent());
+            }
+            catch (IOException ioe) {
+                throw new CompletionException(new XmlRpcClientException("Failed to read server's response: " + ioe.getMessage(), ioe));
+            }
+            catch (XmlRpcException xe) {
+                throw new CompletionException(xe);
+            }
+        });
+    }
+
+    /**
+     * @param handler if not null, the result must be an array whose elements are passed to the handler instead of
+     *                being returned
+     */
+    private Object call(String service, String method, List<Object> args, ElementHandler handler) throws XmlRpcException {
+        RequestBuffer request = RequestBuffer.acquire();
+        try {
+            XmlRpcRequestWriter.write(request, method, args);
+
+            try (OdooHttpResponse response = httpClient.post(serviceUris.get(service), Map.of(), CONTENT_TYPE, request.size(),
+                    request::writeTo)) {
+
+                OdooHttpStatusException.check(response);
+                if (handler == null) {
+                    return XmlRpcResponseReader.readResult(response.getContent());
+                }
+
+                boolean complete = false;
+                try {
+                    complete = XmlRpcResponseReader.read(response.getContent(), handler);
+                }
+                finally {
+                    // not read completely, e.g. stopped by the handler or because of a parsing error
+                    if (!complete) {
+                        response.abort();
+                    }
+                }
+                return null;
+            }
+            catch (IOException e) {
+                throw new XmlRpcClientException("Failed to read server's response: " + e.getMessage(), e);
+            }
+        }
+        finally {
+            request.release();
+        }
+    }
+
+}
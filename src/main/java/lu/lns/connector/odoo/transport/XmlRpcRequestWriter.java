@@ -0,0 +1,256 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.client.XmlRpcClientException;
+import org.apache.xmlrpc.util.XmlRpcDateTimeDateFormat;
+
+import java.io.IOException;
+import java.text.FieldPosition;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Writes XML-RPC requests as UTF-8 directly into a {@link RequestBuffer}, without the SAX pipeline and type factory of
+ * the apache XML-RPC client. Values are encoded as by the apache client, see {@link OdooProtocol}, additionally
+ * <code>null</code> is sent as "nil" and {@link Long} as "i8", which odoo accepts, and {@link BinaryValue} as base64
+ * string. The credentials of {@link ExecuteArguments} are encoded once per session.
+ */
+final class XmlRpcRequestWriter {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><methodCall><methodName>";
+    private static final int TEXT_CHUNK_SIZE = 1024;
+
+    private final RequestBuffer out;
+
+    private XmlRpcRequestWriter(RequestBuffer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the request calling the method with the given arguments.
+     */
+    static void write(RequestBuffer out, String method, List<Object> args) throws XmlRpcClientException {
+        XmlRpcRequestWriter writer = new XmlRpcRequestWriter(out);
+        out.writeAscii(HEADER);
+        writer.writeText(method);
+        out.writeAscii("</methodName><params>");
+
+        int first = 0;
+        if (args instanceof ExecuteArguments) {
+            Credentials credentials = ((ExecuteArguments) args).getCredentials();
+            byte[] params = credentials.xmlRpcParams;
+            if (params == null) {
+                params = encodeParams(credentials);
+                credentials.xmlRpcParams = params;
+            }
+            out.write(params, 0, params.length);
+            first = ExecuteArguments.CREDENTIALS_SIZE;
+        }
+
+        for (int i = first; i < args.size(); i++) {
+            writer.writeParam(args.get(i));
+        }
+        out.writeAscii("</params></methodCall>");
+    }
+
+    private static byte[] encodeParams(Credentials credentials) throws XmlRpcClientException {
+        RequestBuffer buffer = RequestBuffer.acquire();
+        try {
+            XmlRpcRequestWriter writer = new XmlRpcRequestWriter(buffer);
+            writer.writeParam(credentials.getDatabase());
+            writer.writeParam(credentials.getUid());
+            writer.writeParam(credentials.getSecret());
+            return buffer.toByteArray();
+        }
+        finally {
+            buffer.release();
+        }
+    }
+
+    private void writeParam(Object value) throws XmlRpcClientException {
+        out.writeAscii("<param>");
+        writeValue(value);
+        out.writeAscii("</param>");
+    }
+
+    private void writeValue(Object value) throws XmlRpcClientException {
+        out.writeAscii("<value>");
+        if (value == null) {
+            out.writeAscii("<nil/>");
+        }
+        else if (value instanceof String) {
+            writeText((String) value);
+        }
+        else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeAscii("<i4>");
+            out.writeAscii(value.toString());
+            out.writeAscii("</i4>");
+        }
+        else if (value instanceof Boolean) {
+            out.writeAscii((Boolean) value ? "<boolean>1</boolean>" : "<boolean>0</boolean>");
+        }
+        else if (value instanceof Long) {
+            out.writeAscii("<i8>");
+            out.writeAscii(value.toString());
+            out.writeAscii("</i8>");
+        }
+        else if (value instanceof Double || value instanceof Float) {
+            out.writeAscii("<double>");
+            out.writeAscii(value.toString());
+            out.writeAscii("</double>");
+        }
+        else if (value instanceof Map) {
+            out.writeAscii("<struct>");
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out.writeAscii("<member><name>");
+                writeText(entry.getKey().toString());
+                out.writeAscii("</name>");
+                writeValue(entry.getValue());
+                out.writeAscii("</member>");
+            }
+            out.writeAscii("</struct>");
+        }
+        else if (value instanceof Collection) {
+            out.writeAscii("<array><data>");
+            for (Object item : (Collection<?>) value) {
+                writeValue(item);
+            }
+            out.writeAscii("</data></array>");
+        }
+        else if (value instanceof Object[]) {
+            out.writeAscii("<array><data>");
+            for (Object item : (Object[]) value) {
+                writeValue(item);
+            }
+            out.writeAscii("</data></array>");
+        }
+        else if (value instanceof int[]) {
+            out.writeAscii("<array><data>");
+            for (int item : (int[]) value) {
+                out.writeAscii("<value><i4>");
+                out.writeAscii(Integer.toString(item));
+                out.writeAscii("</i4></value>");
+            }
+            out.writeAscii("</data></array>");
+        }
+        else if (value instanceof BinaryValue) {
+            // a string for odoo
+            writeBase64(((BinaryValue) value).getBytes());
+        }
+        else if (value instanceof byte[]) {
+            out.writeAscii("<base64>");
+            out.writeAscii(Base64.getEncoder().encodeToString((byte[]) value));
+            out.writeAscii("</base64>");
+        }
+        else if (value instanceof Date) {
+            out.writeAscii("<dateTime.iso8601>");
+            out.writeAscii(DateFormatHolder.FORMAT.format(value));
+            out.writeAscii("</dateTime.iso8601>");
+        }
+        else {
+            throw new XmlRpcClientException("Unsupported value type for XML-RPC: " + value.getClass().getName(), null);
+        }
+        out.writeAscii("</value>");
+    }
+
+    private void writeBase64(byte[] bytes) throws XmlRpcClientException {
+        try {
+            out.writeBase64(bytes);
+        }
+        catch (IOException e) {
+            throw new XmlRpcClientException("Unable to encode binary value: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the text escaped and encoded as UTF-8.
+     */
+    private void writeText(String text) throws XmlRpcClientException {
+        int length = text.length();
+        int reservedUntil = 0;
+        for (int i = 0; i < length; i++) {
+            if (i >= reservedUntil) {
+                // room for the worst case of each char, an escape like "&amp;", and a surrogate pair at the end
+                reservedUntil = Math.min(length, i + TEXT_CHUNK_SIZE);
+                out.reserve((reservedUntil - i) * 5 + 4);
+            }
+
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                writeEscaped(c);
+            }
+            else if (c < 0x800) {
+                out.put(0xC0 | c >> 6);
+                out.put(0x80 | c & 0x3F);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out.put(0xF0 | codePoint >> 18);
+                out.put(0x80 | codePoint >> 12 & 0x3F);
+                out.put(0x80 | codePoint >> 6 & 0x3F);
+                out.put(0x80 | codePoint & 0x3F);
+            }
+            else if (Character.isSurrogate(c) || c == 0xFFFE || c == 0xFFFF) {
+                throw new XmlRpcClientException("Invalid character 0x" + Integer.toHexString(c) + " cannot be sent via XML-RPC", null);
+            }
+            else {
+                out.put(0xE0 | c >> 12);
+                out.put(0x80 | c >> 6 & 0x3F);
+                out.put(0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void writeEscaped(char c) throws XmlRpcClientException {
+        switch (c) {
+            case '&':
+                out.writeAscii("&amp;");
+                break;
+            case '<':
+                out.writeAscii("&lt;");
+                break;
+            case '>':
+                out.writeAscii("&gt;");
+                break;
+            case '\r':
+                // would be normalized to a line feed by the XML parser of odoo otherwise
+                out.writeAscii("&#13;");
+                break;
+            case '\t':
+            case '\n':
+                out.put(c);
+                break;
+            default:
+                if (c < 0x20) {
+                    throw new XmlRpcClientException("Invalid character 0x" + Integer.toHexString(c) + " cannot be sent via XML-RPC", null);
+                }
+                out.put(c);
+        }
+    }
+
+    /**
+     * Same date format as used by the apache XML-RPC client with its default configuration, see
+     * {@link XmlRpcResponseReader}.
+     */
+    private static final class DateFormatHolder {
+
+        private static final XmlRpcDateTimeDateFormat FORMAT = new XmlRpcDateTimeDateFormat() {
+
+            @Override
+            protected TimeZone getTimeZone() {
+                return TimeZone.getDefault();
+            }
+
+            @Override
+            public synchronized StringBuffer format(Object date, StringBuffer buffer, FieldPosition position) {
+                return super.format(date, buffer, position);
+            }
+
+        };
+
+    }
+
+}
@@ -0,0 +1,341 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.client.XmlRpcClientException;
+import org.apache.xmlrpc.util.XmlRpcDateTimeDateFormat;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Pull parser for XML-RPC responses. For results which are arrays, e.g. of "search_read", each element of the array can
+ * be passed to an {@link OdooProtocol.ElementHandler} as soon as its closing tag has been read, so neither the response
+ * document nor the whole result is held in memory. Values are mapped to java types as described in {@link OdooProtocol}.
+ * <p>
+ * As every record of a search repeats the same member names, the names are interned per response: records share the
+ * same key instances, which are looked up from the parser's characters without creating a string per member.
+ */
+class XmlRpcResponseReader {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private static final int INITIAL_KEYS = 64;
+
+    private final XMLStreamReader reader;
+
+    // open addressing hash table of the member names read so far
+    private String[] keys = new String[INITIAL_KEYS];
+    private int keyCount;
+
+    private XmlRpcResponseReader(XMLStreamReader reader) {
+        this.reader = reader;
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Reads the response and passes the elements of the result array to the handler.
+     *
+     * @return true if the whole response has been read, false if the handler stopped reading
+     * @throws XmlRpcException the fault sent by odoo or in case the response cannot be parsed
+     */
+    static boolean read(InputStream in, OdooProtocol.ElementHandler handler) throws XmlRpcException {
+        return (Boolean) parse(in, handler);
+    }
+
+    /**
+     * Reads the response and returns its result.
+     *
+     * @throws XmlRpcException the fault sent by odoo or in case the response cannot be parsed
+     */
+    static Object readResult(InputStream in) throws XmlRpcException {
+        return parse(in, null);
+    }
+
+    private static Object parse(InputStream in, OdooProtocol.ElementHandler handler) throws XmlRpcException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            return new XmlRpcResponseReader(reader).readResponse(handler);
+        }
+        catch (XMLStreamException | ParseException | RuntimeException e) {
+            throw new XmlRpcClientException("Failed to parse server's response: " + e.getMessage(), e);
+        }
+        finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                }
+                catch (XMLStreamException e) {
+                    // nothing to do, the underlying stream is closed by the transport
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the result if no handler is given, otherwise whether the result array has been read completely
+     */
+    private Object readResponse(OdooProtocol.ElementHandler handler) throws XMLStreamException, ParseException, XmlRpcException {
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "methodResponse");
+        reader.nextTag();
+
+        if ("fault".equals(reader.getLocalName())) {
+            reader.nextTag();
+            Map<?, ?> fault = (Map<?, ?>) readValue(false);
+            Object code = fault.get("faultCode");
+            throw new XmlRpcException(code instanceof Integer ? (Integer) code : 0, String.valueOf(fault.get("faultString")));
+        }
+
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "params");
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "param");
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "value");
+        if (handler == null) {
+            return readValue(false);
+        }
+
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "array");
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "data");
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!handler.handle(readValue(false))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a value, the reader must be positioned on the start of the "value" element and is positioned on its end
+     * afterwards.
+     *
+     * @param member whether the value is the value of a struct member, see {@link #readArray(boolean)}
+     */
+    private Object readValue(boolean member) throws XMLStreamException, ParseException, XmlRpcException {
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "value");
+
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getText());
+            }
+            else if (event == XMLStreamConstants.START_ELEMENT) {
+                Object value = readTypedValue(member);
+                reader.nextTag();
+                reader.require(XMLStreamConstants.END_ELEMENT, null, "value");
+                return value;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                // a value without type is a string
+                return text.toString();
+            }
+        }
+    }
+
+    private Object readTypedValue(boolean member) throws XMLStreamException, ParseException, XmlRpcException {
+        String type = reader.getLocalName();
+        switch (type) {
+            case "string":
+                return reader.getElementText();
+            case "int":
+            case "i4":
+                return Integer.valueOf(reader.getElementText().trim());
+            case "i8":
+                return Long.valueOf(reader.getElementText().trim());
+            case "boolean":
+                return "1".equals(reader.getElementText().trim());
+            case "double":
+                return Double.valueOf(reader.getElementText().trim());
+            case "nil":
+                reader.getElementText();
+                return null;
+            case "base64":
+                return Base64.getMimeDecoder().decode(reader.getElementText());
+            case "dateTime.iso8601":
+                return DateFormatHolder.FORMAT.parseObject(reader.getElementText().trim());
+            case "struct":
+                return readStruct();
+            case "array":
+                return readArray(member);
+            default:
+                throw new XmlRpcClientException("Unknown XML-RPC type " + type, null);
+        }
+    }
+
+    private Map<String, Object> readStruct() throws XMLStreamException, ParseException, XmlRpcException {
+        Map<String, Object> struct = new HashMap<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            reader.require(XMLStreamConstants.START_ELEMENT, null, "member");
+
+            String name = null;
+            Object value = null;
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("name".equals(reader.getLocalName())) {
+                    name = readName();
+                }
+                else {
+                    value = readValue(true);
+                }
+            }
+            struct.put(name, value);
+        }
+        return struct;
+    }
+
+    /**
+     * Reads the text of a "name" element as interned key, the reader is positioned on its end afterwards.
+     */
+    private String readName() throws XMLStreamException {
+        String name = "";
+        StringBuilder split = null;
+        for (int event = reader.next(); event != XMLStreamConstants.END_ELEMENT; event = reader.next()) {
+            if (event != XMLStreamConstants.CHARACTERS && event != XMLStreamConstants.CDATA && event != XMLStreamConstants.SPACE) {
+                continue;
+            }
+            if (split == null && name.isEmpty()) {
+                name = internKey(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            else {
+                // text interrupted, e.g. by a comment, hardly ever the case
+                split = split == null ? new StringBuilder(name) : split;
+                split.append(reader.getText());
+            }
+        }
+        if (split != null) {
+            char[] chars = split.toString().toCharArray();
+            name = internKey(chars, 0, chars.length);
+        }
+        return name;
+    }
+
+    private String internKey(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        int mask = keys.length - 1;
+        int index = hash & mask;
+        for (String key = keys[index]; key != null; key = keys[index]) {
+            if (key.hashCode() == hash && equals(key, chars, start, length)) {
+                return key;
+            }
+            index = (index + 1) & mask;
+        }
+
+        String key = new String(chars, start, length);
+        keys[index] = key;
+        if (++keyCount * 2 > keys.length) {
+            rehashKeys();
+        }
+        return key;
+    }
+
+    private static boolean equals(String key, char[] chars, int start, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehashKeys() {
+        String[] old = keys;
+        keys = new String[old.length * 2];
+        int mask = keys.length - 1;
+        for (String key : old) {
+            if (key != null) {
+                int index = key.hashCode() & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    /**
+     * Reads an array. Arrays of struct members only containing integers, i.e. the ids of x2many fields, are returned as
+     * {@code int[]}, which takes a fraction of the memory of boxed integers. Other arrays, like the result of "search" or
+     * many2one values (id and name), are returned as {@code Object[]}.
+     */
+    private Object readArray(boolean member) throws XMLStreamException, ParseException, XmlRpcException {
+        int[] ints = member ? new int[8] : null;
+        int size = 0;
+        List<Object> array = member ? null : new ArrayList<>();
+
+        reader.nextTag();
+        reader.require(XMLStreamConstants.START_ELEMENT, null, "data");
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            Object value = readValue(false);
+            if (ints != null && value instanceof Integer) {
+                if (size == ints.length) {
+                    ints = Arrays.copyOf(ints, size * 2);
+                }
+                ints[size++] = (Integer) value;
+                continue;
+            }
+            if (ints != null) {
+                array = new ArrayList<>(size + 1);
+                for (int i = 0; i < size; i++) {
+                    array.add(ints[i]);
+                }
+                ints = null;
+            }
+            array.add(value);
+        }
+        reader.nextTag();
+        reader.require(XMLStreamConstants.END_ELEMENT, null, "array");
+        return ints != null ? Arrays.copyOf(ints, size) : array.toArray();
+    }
+
+    /**
+     * Same date format as used by the apache XML-RPC client with its default configuration. Date formats are not
+     * thread-safe, but dates are hardly ever sent by odoo, so a synchronized shared instance is good enough.
+     */
+    private static final class DateFormatHolder {
+
+        private static final XmlRpcDateTimeDateFormat FORMAT = new XmlRpcDateTimeDateFormat() {
+
+            @Override
+            protected TimeZone getTimeZone() {
+                return TimeZone.getDefault();
+            }
+
+            @Override
+            public synchronized Object parseObject(String source) throws ParseException {
+                return super.parseObject(source);
+            }
+
+        };
+
+    }
+
+}
@@ -1,6 +1,9 @@
 package lu.lns.connector.odoo;
 
+import lu.lns.connector.odoo.transport.RequestPriority;
 import org.apache.xmlrpc.XmlRpcException;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.exceptions.ConnectionFailedException;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.objects.Attribute;
 import org.identityconnectors.framework.common.objects.AttributeBuilder;
@@ -13,6 +16,7 @@ import org.identityconnectors.framework.common.objects.ObjectClassInfo;
 import org.identityconnectors.framework.common.objects.OperationOptions;
 import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
 import org.identityconnectors.framework.common.objects.Schema;
+import org.identityconnectors.framework.common.objects.SearchResult;
 import org.identityconnectors.framework.common.objects.SortKey;
 import org.identityconnectors.framework.common.objects.Uid;
 import org.identityconnectors.framework.common.objects.filter.AndFilter;
@@ -27,22 +31,29 @@ import org.identityconnectors.framework.common.objects.filter.LessThanOrEqualFil
 import org.identityconnectors.framework.common.objects.filter.NotFilter;
 import org.identityconnectors.framework.common.objects.filter.OrFilter;
 import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
+import org.identityconnectors.framework.spi.SearchResultsHandler;
 import org.junit.Test;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static lu.lns.connector.odoo.Constants.MODEL_FIELD_SEPARATOR;
@@ -124,6 +135,43 @@ public class ConnectorTest {
         }
     }
 
+    @Test
+    public void testSchemaRetrievalWithConcurrentCalls() {
+        OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+        conf1.setRetrieveModels("res.users, res.partner, hr.employee");
+        conf1.setExpandRelations("res.users" + MODEL_FIELD_SEPARATOR + "partner_id, hr.employee" + MODEL_FIELD_SEPARATOR + "user_id");
+
+        // same schema fetched with one call at a time
+        OdooConfiguration conf2 = new OdooConfiguration(conf1);
+        conf2.setMaxConnectionsPerHost(1);
+
+        OdooConnector conn1 = new OdooConnector();
+        conn1.init(conf1);
+        OdooConnector conn2 = new OdooConnector();
+        conn2.init(conf2);
+
+        Map<String, Set<String>> fieldNames1 = getFieldNamesByModel(conn1.schema());
+        Map<String, Set<String>> fieldNames2 = getFieldNamesByModel(conn2.schema());
+        assertEquals("expected the specified models to be fetched", Set.of("res.users", "res.partner", "hr.employee"),
+                fieldNames1.keySet());
+        assertEquals("expected the same fields as fetched with one call at a time", fieldNames2, fieldNames1);
+
+        assertTrue("expected fields of expanded relation",
+                fieldNames1.get("res.users").contains("partner_id" + MODEL_FIELD_SEPARATOR + "email"));
+        assertTrue("expected fields of expanded relation",
+                fieldNames1.get("hr.employee").contains("user_id" + MODEL_FIELD_SEPARATOR + "login"));
+        assertFalse("expected relations of res.partner to not be expanded", fieldNames1.get("res.partner").stream()
+                .anyMatch(fieldName -> fieldName.contains(MODEL_FIELD_SEPARATOR)));
+
+        conn2.dispose();
+        conn1.dispose();
+    }
+
+    private static Map<String, Set<String>> getFieldNamesByModel(Schema schema) {
+        return schema.getObjectClassInfo().stream().collect(Collectors.toMap(ObjectClassInfo::getType,
+                oci -> oci.getAttributeInfo().stream().map(AttributeInfo::getName).collect(Collectors.toSet())));
+    }
+
     @Test
     public void testCreateAndUpdateWithRelatedRecord() {
         ObjectClass oc = new ObjectClass("res.users");
@@ -588,6 +636,381 @@ public class ConnectorTest {
         assertEquals("expect record 1 to come second when sort by name descending", uid1, results.getConnectorObjects().get(1).getUid());
     }
 
+    @Test
+    public void testCreateAndSearchWithJsonRpc() {
+        OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+        conf1.setProtocol(Constants.PROTOCOL_JSONRPC);
+
+        OdooConnector conn1 = new OdooConnector();
+        conn1.init(conf1);
+        conn1.test();
+
+        ObjectClass oc = new ObjectClass("hr.employee");
+        String name = "Test Emp" + System.currentTimeMillis();
+        Uid uid = conn1.create(oc, Set.of(AttributeBuilder.build("name", name)), new OperationOptionsBuilder().build());
+
+        // the same record must be found via XML-RPC and JSON-RPC with same attribute values
+        for (OdooConnector conn : Arrays.asList(connector, conn1)) {
+            TestResultsHandler results = new TestResultsHandler();
+            conn.executeQuery(oc, new EqualsFilter(uid), results, new OperationOptionsBuilder().setAttributesToGet("name").build());
+            assertEquals("expect one record to be found", 1, results.getConnectorObjects().size());
+            assertAttributeEquals("expect name attribute to match as created", name, results.getConnectorObjects().get(0), "name");
+        }
+
+        conn1.dispose();
+    }
+
+    @Test
+    public void testUnavailableServerFailsFast() {
+        OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+        conf1.setUrl("http://localhost:1"); // nothing listening there
+        conf1.setRetryAttempts(1);
+        conf1.setRetryBackoff(10);
+        conf1.setCircuitBreakerThreshold(2);
+
+        OdooClient client = new OdooClient(conf1);
+        assertThrows("expect call to fail after retry", ConnectionFailedException.class, () -> client.executeCommon("version"));
+        assertEquals("expect one retry", 1, client.getMetrics().getRetries().sum());
+        assertEquals("expect circuit breaker to be open", 1, client.getMetrics().getCircuitBreakerOpened().sum());
+
+        assertThrows("expect call to fail fast", ConnectionFailedException.class, () -> client.executeCommon("version"));
+        assertEquals("expect no request sent while circuit breaker is open", 2, client.getMetrics().getRequests().sum());
+        assertEquals("expect call to be rejected by circuit breaker", 1, client.getMetrics().getCircuitBreakerRejections().sum());
+        client.close();
+    }
+
+    @Test
+    public void testStreamedSearchWithHandlerCallingOdoo() {
+        OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+        conf1.setMaxConnectionsPerHost(2);
+        conf1.setAdaptiveConcurrency(true); // starts with one request in flight
+        conf1.setOperationTimeout(60000); // fail instead of waiting forever
+
+        // both connectors share the connections to odoo
+        OdooConnector conn1 = new OdooConnector();
+        conn1.init(conf1);
+        OdooConnector conn2 = new OdooConnector();
+        conn2.init(conf1);
+
+        // more records than are buffered while the handler is busy, so the search response is still being read
+        ObjectClass oc = new ObjectClass("hr.employee");
+        String name = "Test Emp" + System.currentTimeMillis();
+        List<Uid> uids = createEmployees(name, Constants.SEARCH_QUEUE_CAPACITY + 20);
+        Filter filter = new StartsWithFilter(AttributeBuilder.build("name", name));
+
+        // the handler searches odoo itself for every record
+        Set<Uid> found = new HashSet<>();
+        conn1.executeQuery(oc, filter, obj -> {
+            TestResultsHandler results = new TestResultsHandler();
+            conn2.executeQuery(oc, new EqualsFilter(obj.getAttributeByName("name")), results, new OperationOptionsBuilder().build());
+            assertEquals("expect handler to find the record", 1, results.getConnectorObjects().size());
+            assertTrue("expect record to be handled once", found.add(obj.getUid()));
+            return true;
+        }, new OperationOptionsBuilder().setAttributesToGet("name").build());
+        assertEquals("expect all records to be found", new HashSet<>(uids), found);
+
+        // same while related records are read
+        found.clear();
+        conn1.executeQuery(oc, filter, obj -> {
+            TestResultsHandler results = new TestResultsHandler();
+            conn2.executeQuery(oc, new EqualsFilter(obj.getUid()), results, new OperationOptionsBuilder().build());
+            assertEquals("expect handler to find the record", 1, results.getConnectorObjects().size());
+            assertTrue("expect record to be handled once", found.add(obj.getUid()));
+            return true;
+        }, new OperationOptionsBuilder().setAttributesToGet("name", "user_id" + MODEL_FIELD_SEPARATOR + "login").build());
+        assertEquals("expect all records to be found", new HashSet<>(uids), found);
+
+        conn2.dispose();
+        conn1.dispose();
+    }
+
+    @Test
+    public void testInteractiveCallsBeforeBulkCalls() {
+        OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+        conf1.setMaxConnectionsPerHost(1);
+        conf1.setOperationTimeout(60000);
+
+        OdooClient client = new OdooClient(conf1);
+        client.authenticate();
+
+        // bulk calls are queued, only one of them is sent at a time
+        List<CompletableFuture<Object>> bulkCalls = client.executeOperationWithAuthentication(RequestPriority.BULK,
+                () -> IntStream.range(0, 20)
+                        .mapToObj(i -> client.executeXmlRpcAsync("hr.employee", OdooConstants.OPERATION_SEARCH_COUNT,
+                                Collections.singletonList(Collections.emptyList())))
+                        .collect(Collectors.toList()));
+
+        // an interactive call is sent before the queued ones
+        client.executeOperationWithAuthentication(RequestPriority.INTERACTIVE, () -> client.executeXmlRpc("hr.employee",
+                OdooConstants.OPERATION_SEARCH_COUNT, Collections.singletonList(Collections.emptyList())));
+        assertTrue("expect bulk calls to be still queued after the interactive call",
+                bulkCalls.stream().filter(CompletableFuture::isDone).count() < bulkCalls.size());
+
+        for (CompletableFuture<Object> bulkCall : bulkCalls) {
+            assertTrue("expect bulk call to complete", (Integer) client.await(bulkCall) >= 0);
+        }
+        client.close();
+    }
+
+    @Test
+    public void testSessionSharedByClients() {
+        OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+        OdooClient client1 = new OdooClient(conf1);
+        client1.authenticate();
+
+        // a second client of the same user uses the uid resolved already
+        OdooClient client2 = new OdooClient(conf1);
+        long requests = client2.getMetrics().getRequests().sum();
+        client2.authenticate();
+        assertEquals("expect second client to not authenticate again", requests, client2.getMetrics().getRequests().sum());
+
+        // with another password odoo denies access with the shared uid, then authentication fails
+        OdooConfiguration conf2 = new OdooConfiguration(conf1);
+        conf2.setPassword(new GuardedString("invalid".toCharArray()));
+        OdooClient client3 = new OdooClient(conf2);
+        assertThrows("expect authentication to fail after access was denied", ConnectorException.class,
+                () -> client3.executeOperationWithAuthentication(() -> client3.executeXmlRpc("hr.employee",
+                        OdooConstants.OPERATION_SEARCH_COUNT, Collections.singletonList(Collections.emptyList()))));
+
+        // the clients authenticated before keep their session, a new client authenticates again
+        assertTrue("expect call of authenticated client to succeed", (Integer) client1.executeOperationWithAuthentication(
+                () -> client1.executeXmlRpc("hr.employee", OdooConstants.OPERATION_SEARCH_COUNT,
+                        Collections.singletonList(Collections.emptyList()))) >= 0);
+        OdooClient client4 = new OdooClient(conf1);
+        requests = client4.getMetrics().getRequests().sum();
+        client4.authenticate();
+        assertEquals("expect new client to authenticate again", requests + 1, client4.getMetrics().getRequests().sum());
+
+        client4.close();
+        client3.close();
+        client2.close();
+        client1.close();
+    }
+
+    @Test
+    public void testChunkedSearch() {
+        ObjectClass oc = new ObjectClass("hr.employee");
+        String name = "Test Emp" + System.currentTimeMillis();
+        List<Uid> uids = sortById(createEmployees(name, 24));
+        Filter filter = new StartsWithFilter(AttributeBuilder.build("name", name));
+
+        // a partial last chunk, an empty last chunk and a single chunk
+        for (int chunkSize : new int[] { 7, 8, 24, 25 }) {
+            OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+            conf1.setSearchChunkSize(chunkSize);
+            OdooConnector conn1 = new OdooConnector();
+            conn1.init(conf1);
+
+            TestResultsHandler results = new TestResultsHandler();
+            conn1.executeQuery(oc, filter, results, new OperationOptionsBuilder().setAttributesToGet("name").build());
+            assertEquals("expect all records once in id order with chunk size " + chunkSize, uids, getUids(results));
+
+            // the search stops when the handler asks to
+            List<Uid> handled = new ArrayList<>();
+            conn1.executeQuery(oc, filter, obj -> handled.add(obj.getUid()) && handled.size() < 10,
+                    new OperationOptionsBuilder().setAttributesToGet("name").build());
+            assertEquals("expect the first records to be handled until the handler stops", uids.subList(0, 10), handled);
+
+            conn1.dispose();
+        }
+    }
+
+    @Test
+    public void testPartitionedSearch() {
+        ObjectClass oc = new ObjectClass("hr.employee");
+        String name = "Test Emp" + System.currentTimeMillis();
+        List<Uid> uids = sortById(createEmployees(name, 30));
+        Filter filter = new StartsWithFilter(AttributeBuilder.build("name", name));
+
+        // gaps in the ids leave some ranges partially filled or empty
+        List<Uid> remaining = new ArrayList<>();
+        for (int i = 0; i < uids.size(); i++) {
+            if (i % 4 == 1 || (i >= 10 && i < 16)) {
+                connector.delete(oc, uids.get(i), new OperationOptionsBuilder().build());
+            }
+            else {
+                remaining.add(uids.get(i));
+            }
+        }
+
+        for (boolean preserveOrder : new boolean[] { true, false }) {
+            OdooConfiguration conf1 = new OdooConfiguration(connector.getConfiguration());
+            conf1.setSearchChunkSize(5);
+            conf1.setSearchParallelism(3);
+            conf1.setSearchPreserveOrder(preserveOrder);
+            OdooConnector conn1 = new OdooConnector();
+            conn1.init(conf1);
+
+            TestResultsHandler results = new TestResultsHandler();
+            conn1.executeQuery(oc, filter, results, new OperationOptionsBuilder().setAttributesToGet("name").build());
+            List<Uid> found = getUids(results);
+            assertEquals("expect no record to be found twice", new HashSet<>(found).size(), found.size());
+            if (preserveOrder) {
+                assertEquals("expect all records in id order", remaining, found);
+            }
+            else {
+                assertEquals("expect all records in any order", new HashSet<>(remaining), new HashSet<>(found));
+            }
+
+            conn1.dispose();
+        }
+    }
+
+    @Test
+    public void testSearchInBuckets() {
+        ObjectClass oc = new ObjectClass("hr.employee");
+        String name = "Test Emp" + System.currentTimeMillis();
+        List<Uid> uids = sortById(createEmployees(name, 20));
+        Filter filter = new StartsWithFilter(AttributeBuilder.build("name", name));
+
+        // the buckets together contain every record once
+        for (int count : new int[] { 1, 3, 8 }) {
+            List<Uid> found = new ArrayList<>();
+            for (int index = 1; index <= count; index++) {
+                TestResultsHandler results = new TestResultsHandler();
+                connector.executeQuery(oc, filter, results, new OperationOptionsBuilder().setAttributesToGet("name")
+                        .setOption(Constants.OPTION_BUCKET, index + "/" + count).build());
+                found.addAll(getUids(results));
+            }
+            assertEquals("expect all records once in " + count + " buckets", uids, sortById(found));
+        }
+
+        // buckets searched one after the other share their boundaries although records are created in between, the new
+        // records falling into the last bucket
+        List<Uid> expected = new ArrayList<>(uids);
+        List<Uid> found = new ArrayList<>();
+        for (int index = 1; index <= 4; index++) {
+            TestResultsHandler results = new TestResultsHandler();
+            connector.executeQuery(oc, filter, results, new OperationOptionsBuilder().setAttributesToGet("name")
+                    .setOption(Constants.OPTION_BUCKET, index + "/4").build());
+            found.addAll(getUids(results));
+            if (index < 4) {
+                expected.addAll(createEmployees(name + "_new" + index, 5));
+            }
+        }
+        assertEquals("expect all records once in buckets searched while records are created", sortById(expected),
+                sortById(found));
+
+        // the pages of a bucket keep its id range although records are created meanwhile
+        for (int index = 1; index <= 3; index++) {
+            Map<String, Object> bucket = Map.of(Constants.OPTION_BUCKET, index + "/3");
+            TestResultsHandler results = new TestResultsHandler();
+            connector.executeQuery(oc, filter, results, new OperationOptionsBuilder().setAttributesToGet("name")
+                    .setOption(Constants.OPTION_BUCKET, bucket.get(Constants.OPTION_BUCKET)).build());
+            assertEquals("expect the pages of bucket " + index + " to contain the records of the bucket", getUids(results),
+                    searchAllPages(oc, filter, 2, bucket, () -> createEmployees("Other Emp" + System.currentTimeMillis(), 5)));
+        }
+
+        // a search by uid is restricted to the slice as well
+        Uid last = uids.get(uids.size() - 1);
+        int lastId = Integer.parseInt(last.getUidValue());
+        for (Map<String, Object> slice : List.of(Map.<String, Object>of(Constants.OPTION_ID_TO, lastId),
+                Map.<String, Object>of(Constants.OPTION_BUCKET, "1/1", Constants.OPTION_ID_FROM, lastId + 1))) {
+            OperationOptionsBuilder options = new OperationOptionsBuilder().setAttributesToGet("name");
+            slice.forEach(options::setOption);
+            TestResultsHandler results = new TestResultsHandler();
+            connector.executeQuery(oc, new EqualsFilter(last), results, options.build());
+            assertEquals("expect record outside the slice " + slice + " not to be found by uid", 0, results.getConnectorObjects().size());
+        }
+        TestResultsHandler inSlice = new TestResultsHandler();
+        connector.executeQuery(oc, new EqualsFilter(last), inSlice, new OperationOptionsBuilder().setAttributesToGet("name")
+                .setOption(Constants.OPTION_ID_FROM, lastId).build());
+        assertEquals("expect record in the slice to be found by uid", List.of(last), getUids(inSlice));
+
+        assertThrows("expect invalid bucket to be rejected", ConnectorException.class,
+                () -> connector.executeQuery(oc, filter, new TestResultsHandler(),
+                        new OperationOptionsBuilder().setOption(Constants.OPTION_BUCKET, "4/3").build()));
+    }
+
+    @Test
+    public void testPagedSearchWithCookie() {
+        ObjectClass oc = new ObjectClass("hr.employee");
+        String name = "Test Emp" + System.currentTimeMillis();
+        List<Uid> uids = createEmployees(name, 24);
+        Map<Uid, String> names = new HashMap<>();
+        for (int i = 0; i < uids.size(); i++) {
+            names.put(uids.get(i), String.format("%s_%03d", name, i));
+        }
+
+        // records with the same name are sorted by id
+        for (int i = 0; i < 3; i++) {
+            Uid uid = connector.create(oc, Set.of(AttributeBuilder.build("name", name + "_005")), new OperationOptionsBuilder().build());
+            uids.add(uid);
+            names.put(uid, name + "_005");
+        }
+        List<Uid> byId = sortById(uids);
+        List<Uid> byNameDescending = byId.stream().sorted(Comparator.comparing(names::get).reversed()).collect(Collectors.toList());
+        Filter filter = new StartsWithFilter(AttributeBuilder.build("name", name));
+
+        // a partial last page, an empty last page and a single page
+        for (int pageSize : new int[] { 7, 9, 27, 30 }) {
+            assertEquals("expect pages sorted by id to contain all records once with page size " + pageSize,
+                    byId, searchAllPages(oc, filter, pageSize));
+            assertEquals("expect pages sorted by name (keyset cookie) to contain all records once with page size " + pageSize,
+                    byNameDescending, searchAllPages(oc, filter, pageSize, new SortKey("name", false)));
+            assertEquals("expect pages sorted by an optional field (offset cookie) to contain all records once with page size "
+                    + pageSize, byId, searchAllPages(oc, filter, pageSize, new SortKey("user_id", true)));
+        }
+    }
+
+    /**
+     * @return the uids of the records found by requesting pages with the cookie of the previous page until there is none
+     */
+    private List<Uid> searchAllPages(ObjectClass oc, Filter filter, int pageSize, SortKey... sortKeys) {
+        return searchAllPages(oc, filter, pageSize, Collections.emptyMap(), () -> { }, sortKeys);
+    }
+
+    /**
+     * @param optionValues further operation options
+     * @param betweenPages called after each page except the last
+     */
+    private List<Uid> searchAllPages(ObjectClass oc, Filter filter, int pageSize, Map<String, Object> optionValues,
+            Runnable betweenPages, SortKey... sortKeys) {
+        List<Uid> uids = new ArrayList<>();
+        String[] cookie = new String[1];
+        int pages = 0;
+        do {
+            assertTrue("expect the pages to end", ++pages <= 100);
+            OperationOptionsBuilder options = new OperationOptionsBuilder().setAttributesToGet("name").setPageSize(pageSize)
+                    .setSortKeys(sortKeys);
+            optionValues.forEach(options::setOption);
+            if (cookie[0] != null) {
+                betweenPages.run();
+                options.setPagedResultsCookie(cookie[0]);
+            }
+            connector.executeQuery(oc, filter, new SearchResultsHandler() {
+                @Override
+                public boolean handle(ConnectorObject connectorObject) {
+                    return uids.add(connectorObject.getUid());
+                }
+
+                @Override
+                public void handleResult(SearchResult result) {
+                    cookie[0] = result.getPagedResultsCookie();
+                }
+            }, options.build());
+        } while (cookie[0] != null);
+        return uids;
+    }
+
+    private List<Uid> createEmployees(String name, int count) {
+        ObjectClass oc = new ObjectClass("hr.employee");
+        List<Uid> uids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            uids.add(connector.create(oc, Set.of(AttributeBuilder.build("name", String.format("%s_%03d", name, i))),
+                    new OperationOptionsBuilder().build()));
+        }
+        return uids;
+    }
+
+    private static List<Uid> sortById(Collection<Uid> uids) {
+        return uids.stream().sorted(Comparator.comparingInt(uid -> Integer.parseInt(uid.getUidValue()))).collect(Collectors.toList());
+    }
+
+    private static List<Uid> getUids(TestResultsHandler results) {
+        return results.getConnectorObjects().stream().map(ConnectorObject::getUid).collect(Collectors.toList());
+    }
+
     @Test
     public void testDeleteRecord() {
         // create any record
@@ -603,6 +1026,12 @@ public class ConnectorTest {
         TestResultsHandler results = new TestResultsHandler();
         connector.executeQuery(oc, new EqualsFilter(uid), results, oo);
         assertEquals("expected record to be deleted", 0, results.getConnectorObjects().size());
+
+        // also not found when related records are read in the same call
+        results = new TestResultsHandler();
+        connector.executeQuery(oc, new EqualsFilter(uid), results,
+                new OperationOptionsBuilder().setAttributesToGet("name", "user_id" + MODEL_FIELD_SEPARATOR + "login").build());
+        assertEquals("expected deleted record not to be found with related records", 0, results.getConnectorObjects().size());
     }
 
     private Object assertAttributeNotNull(String message, ConnectorObject record, String attributeName) {
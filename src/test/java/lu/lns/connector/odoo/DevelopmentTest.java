@@ -65,8 +65,8 @@ public class DevelopmentTest {
             System.out.println("----------- Model ------------");
             model.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(this::dumpField);
 
-            Object[] fieldIds = (Object[]) model.get(MODEL_FIELD_FIELD_IDS);
-            Object[] fields = (Object[]) client.executeXmlRpc(MODEL_NAME_MODEL_FIELDS, OPERATION_READ, singletonList(asList(fieldIds)));
+            int[] fieldIds = (int[]) model.get(MODEL_FIELD_FIELD_IDS);
+            Object[] fields = (Object[]) client.executeXmlRpc(MODEL_NAME_MODEL_FIELDS, OPERATION_READ, singletonList(fieldIds));
 
             System.out.println("----------- Fields Overview ------------");
             for (var fieldObj : fields) {
@@ -94,7 +94,10 @@ public class DevelopmentTest {
 
     private void dumpField(Map.Entry<String, Object> field) {
         Object value = field.getValue();
-        if (value.getClass().isArray()) {
+        if (value instanceof int[]) {
+            value = Arrays.toString((int[]) value);
+        }
+        else if (value.getClass().isArray()) {
             value = Arrays.toString((Object[]) value);
         }
         System.out.println(field.getKey() + ": " + value);
@@ -0,0 +1,113 @@
+package lu.lns.connector.odoo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of hedging calls, no Odoo instance required.
+ */
+public class HedgingPolicyTest {
+
+    @Test
+    public void testDelayFromPercentile() {
+        // half of the recent calls took 300 ms, a call taking 100 ms is only hedged if the delay is below the median
+        OdooMetrics metrics = new OdooMetrics();
+        HedgingPolicy policy = createPolicy(50, 100, metrics);
+        warmUp(policy, 10, 10);
+        assertEquals("expect first answer", "first", call(policy, 100));
+        assertEquals("expect no hedge before the median latency", 0, metrics.getHedges().sum());
+
+        metrics = new OdooMetrics();
+        policy = createPolicy(40, 100, metrics);
+        warmUp(policy, 10, 10);
+        assertEquals("expect answer of the hedge", "hedge", call(policy, 100));
+        assertEquals("expect hedge after the latency of the fast calls", 1, metrics.getHedges().sum());
+    }
+
+    @Test
+    public void testNoHedgeBeforeEnoughSamples() {
+        OdooMetrics metrics = new OdooMetrics();
+        HedgingPolicy policy = createPolicy(50, 100, metrics);
+        warmUp(policy, 19, 0);
+        assertEquals("expect first answer", "first", call(policy, 100));
+        assertEquals("expect no hedge before the hedging delay is known", 0, metrics.getHedges().sum());
+    }
+
+    @Test
+    public void testHedgesLimitedByTokens() {
+        // each call earns half a token, the 20 fast calls fill the bucket with 10 tokens
+        OdooMetrics metrics = new OdooMetrics();
+        HedgingPolicy policy = createPolicy(10, 50, metrics);
+        warmUp(policy, 20, 0);
+
+        for (int i = 0; i < 19; i++) {
+            call(policy, 200);
+        }
+        assertEquals("expect a burst of hedges until the tokens are used up", 19, metrics.getHedges().sum());
+
+        for (int i = 0; i < 10; i++) {
+            call(policy, 200);
+        }
+        assertEquals("expect every second call to be hedged afterwards", 24, metrics.getHedges().sum());
+    }
+
+    @Test
+    public void testFailureOfAllRequests() {
+        OdooMetrics metrics = new OdooMetrics();
+        HedgingPolicy policy = createPolicy(50, 100, metrics);
+        warmUp(policy, 20, 0);
+
+        CompletableFuture<String> result = policy.execute("res.users", "read", () -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("failed");
+        }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)));
+        CompletableFuture<String> handled = result.handle((value, e) -> e != null ? e.getMessage() : value);
+        assertEquals("expect failure once both requests failed", "failed", handled.join());
+        assertEquals("expect failed call to be hedged", 1, metrics.getHedges().sum());
+    }
+
+    private static HedgingPolicy createPolicy(int percentile, int maxShare, OdooMetrics metrics) {
+        OdooConfiguration configuration = new OdooConfiguration();
+        configuration.setHedgingPercentile(percentile);
+        configuration.setHedgingMaxShare(maxShare);
+        return new HedgingPolicy(configuration, metrics);
+    }
+
+    /**
+     * Executes calls answered at once and calls answered after 300 ms at the same time, so the latencies are known.
+     */
+    private static void warmUp(HedgingPolicy policy, int fastCalls, int slowCalls) {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < fastCalls; i++) {
+            results.add(policy.execute("res.users", "read", () -> CompletableFuture.completedFuture("fast")));
+        }
+        for (int i = 0; i < slowCalls; i++) {
+            results.add(policy.execute("res.users", "read", () -> answer("slow", 300)));
+        }
+        results.forEach(CompletableFuture::join);
+    }
+
+    /**
+     * Executes a call whose first request is answered after the given time and a hedge at once.
+     *
+     * @return "first" or "hedge" depending on which request answered first
+     */
+    private static String call(HedgingPolicy policy, int firstLatency) {
+        AtomicInteger requests = new AtomicInteger();
+        return policy.execute("res.users", "read",
+                () -> requests.getAndIncrement() == 0 ? answer("first", firstLatency) : answer("hedge", 0)).join();
+    }
+
+    private static CompletableFuture<String> answer(String value, int latency) {
+        return latency == 0
+                ? CompletableFuture.completedFuture(value)
+                : CompletableFuture.supplyAsync(() -> value, CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS));
+    }
+
+}
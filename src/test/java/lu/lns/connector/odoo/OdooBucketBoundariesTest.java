@@ -0,0 +1,49 @@
+package lu.lns.connector.odoo;
+
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of sharing the boundaries of buckets, no Odoo instance required.
+ */
+public class OdooBucketBoundariesTest {
+
+    @Test
+    public void testBoundariesLookedUpOnceForAllBuckets() {
+        OdooBucketBoundaries boundaries = OdooBucketBoundaries.forSession(getClass().getName() + System.nanoTime());
+        AtomicInteger lookups = new AtomicInteger();
+
+        int[] first = boundaries.get("res.users", 4, () -> new int[]{10 + lookups.incrementAndGet(), 20, 30});
+        int[] later = boundaries.get("res.users", 4, () -> new int[]{10 + lookups.incrementAndGet(), 20, 30});
+        assertArrayEquals("expect boundaries of the first search for all buckets", first, later);
+        assertEquals("expect a single lookup", 1, lookups.get());
+
+        boundaries.get("res.users", 3, () -> new int[]{10 + lookups.incrementAndGet(), 20});
+        boundaries.get("res.partner", 4, () -> new int[]{10 + lookups.incrementAndGet(), 20, 30});
+        assertEquals("expect own boundaries for other numbers of buckets and other models", 3, lookups.get());
+    }
+
+    @Test
+    public void testLookupRepeatedAfterFailure() {
+        OdooBucketBoundaries boundaries = OdooBucketBoundaries.forSession(getClass().getName() + System.nanoTime());
+        assertThrows("expect failure of the lookup", ConnectorException.class, () -> boundaries.get("res.users", 2, () -> {
+            throw new ConnectorException("Lookup failed");
+        }));
+        assertArrayEquals("expect boundaries looked up again by the next search", new int[]{42},
+                boundaries.get("res.users", 2, () -> new int[]{42}));
+    }
+
+    @Test
+    public void testSessionsSeparate() {
+        String sessionKey = getClass().getName() + System.nanoTime();
+        assertSame("expect boundaries shared by the clients of a session", OdooBucketBoundaries.forSession(sessionKey),
+                OdooBucketBoundaries.forSession(sessionKey));
+        assertNotSame("expect boundaries of other sessions separate", OdooBucketBoundaries.forSession(sessionKey),
+                OdooBucketBoundaries.forSession(sessionKey + "2"));
+    }
+
+}
@@ -0,0 +1,38 @@
+package lu.lns.connector.odoo;
+
+import org.identityconnectors.common.security.GuardedString;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the client lifecycle, no Odoo instance required.
+ */
+public class OdooClientTest {
+
+    @Test
+    public void testCloseTwiceKeepsSharedConnections() {
+        OdooConfiguration configuration = new OdooConfiguration();
+        configuration.setUrl("http://localhost:1"); // nothing listening there, no request is sent
+        configuration.setDatabase("db1");
+        configuration.setUsername("admin");
+        configuration.setPassword(new GuardedString("admin".toCharArray()));
+
+        OdooClient client1 = new OdooClient(configuration);
+        OdooClient client2 = new OdooClient(configuration);
+        assertSame("expect clients to share the connections", client1.getMetrics(), client2.getMetrics());
+
+        // closing the first client again must not release the connections still used by the second one
+        client1.close();
+        client1.close();
+        OdooClient client3 = new OdooClient(configuration);
+        assertSame("expect connections of the second client to be still shared", client2.getMetrics(), client3.getMetrics());
+
+        client3.close();
+        client2.close();
+        OdooClient client4 = new OdooClient(configuration);
+        assertNotSame("expect new connections after all clients are closed", client2.getMetrics(), client4.getMetrics());
+        client4.close();
+    }
+
+}
@@ -0,0 +1,58 @@
+package lu.lns.connector.odoo;
+
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of encoding and parsing paged results cookies, no Odoo instance required.
+ */
+public class OdooPageCookieTest {
+
+    @Test
+    public void testCookieWithPositionOnly() {
+        OdooPageCookie cookie = OdooPageCookie.parse(new OdooPageCookie(20, null, null).encode());
+        assertEquals("expect position to be kept", 20, cookie.getPosition());
+        assertNull("expect no bucket range", cookie.getBucketRange());
+        assertNull("expect no sort values", cookie.getLastValues(1));
+    }
+
+    @Test
+    public void testCookieWithBucketRangeAndSortValues() {
+        List<Object> lastValues = Arrays.asList("Smith", 12.5, 42);
+        OdooPageCookie cookie = OdooPageCookie.parse(new OdooPageCookie(10, Arrays.asList(null, 500), lastValues).encode());
+        assertEquals("expect position to be kept", 10, cookie.getPosition());
+        assertEquals("expect open start and end of the bucket to be kept", Arrays.asList(null, 500), cookie.getBucketRange());
+        assertEquals("expect sort values to be kept", lastValues.toString(), cookie.getLastValues(3).toString());
+
+        cookie = OdooPageCookie.parse(new OdooPageCookie(10, Arrays.asList(100, Integer.MAX_VALUE), null).encode());
+        assertEquals("expect bucket range to be kept", Arrays.asList(100, Integer.MAX_VALUE), cookie.getBucketRange());
+    }
+
+    @Test
+    public void testSortValuesIgnoredWhenSortedDifferently() {
+        OdooPageCookie cookie = OdooPageCookie.parse(new OdooPageCookie(10, null, Arrays.asList("Smith", 42)).encode());
+        assertNull("expect sort values of another sort order to be ignored", cookie.getLastValues(1));
+        assertEquals("expect position to be kept for another sort order", 10, cookie.getPosition());
+    }
+
+    @Test
+    public void testInvalidCookie() {
+        assertThrows("expect cookie that is no base64 to be rejected", ConnectorException.class, () -> OdooPageCookie.parse("%%"));
+        assertThrows("expect cookie without position to be rejected", ConnectorException.class,
+                () -> OdooPageCookie.parse(base64("[\"a\"]")));
+        assertThrows("expect bucket range with one id to be rejected", ConnectorException.class,
+                () -> OdooPageCookie.parse(base64("[0,[1]]")));
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,189 @@
+package lu.lns.connector.odoo;
+
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of combining concurrent reads of single records, no Odoo instance required.
+ */
+public class OdooReadBatcherTest {
+
+    private static final List<String> FIELDS = List.of("id", "login");
+
+    // found by the fake client
+    private static final int MAX_EXISTING_ID = 1000;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch finishFirstRead = new CountDownLatch(1);
+    private RecordingClient client;
+    private OdooReadBatcher batcher;
+
+    @Before
+    public void setUp() {
+        OdooConfiguration configuration = new OdooConfiguration();
+        configuration.setUrl("http://localhost:1"); // nothing listening there, no request is sent
+        configuration.setDatabase("db1");
+        configuration.setUsername("admin");
+        configuration.setPassword(new GuardedString("admin".toCharArray()));
+        client = new RecordingClient(configuration);
+        batcher = OdooReadBatcher.forSession(getClass().getName() + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        finishFirstRead.countDown();
+        executor.shutdownNow();
+        client.close();
+    }
+
+    @Test
+    public void testConcurrentReadsJoined() throws Exception {
+        // a read while no other one is in progress is sent at once, the reads started while it runs wait for each other
+        Future<Map<String, Object>> first = read("res.users", 5000);
+        awaitBatches(1);
+
+        List<Future<Map<String, Object>>> reads = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            reads.add(read("res.users", id));
+        }
+        reads.add(read("res.users", 3));
+        Future<Map<String, Object>> otherModel = read("res.partner", 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("expect record read by id", i + 1, reads.get(i).get(10, TimeUnit.SECONDS).get("id"));
+        }
+        assertEquals("expect record of a read of the same id", 3, reads.get(10).get(10, TimeUnit.SECONDS).get("id"));
+        assertEquals("expect record of other model", 1, otherModel.get(10, TimeUnit.SECONDS).get("id"));
+
+        finishFirstRead.countDown();
+        assertNull("expect no record for unknown id", first.get(10, TimeUnit.SECONDS));
+
+        assertEquals("expect a read for the first record, one for the joined reads and one for the other model", 3,
+                client.batches.size());
+        assertEquals("expect first read alone", List.of(5000), client.getIds("res.users").get(0));
+        List<Integer> joined = new ArrayList<>(client.getIds("res.users").get(1));
+        Collections.sort(joined);
+        assertEquals("expect each id of the joined reads once", List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), joined);
+        assertEquals("expect reads of other models not joined", List.of(List.of(1)), client.getIds("res.partner"));
+    }
+
+    @Test
+    public void testLargeBatchSplit() throws Exception {
+        read("res.users", 5000);
+        awaitBatches(1);
+
+        int count = Constants.MAX_READ_BATCH_SIZE + 50;
+        List<Future<Map<String, Object>>> reads = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            reads.add(read("res.users", id));
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals("expect record read by id", i + 1, reads.get(i).get(10, TimeUnit.SECONDS).get("id"));
+        }
+
+        List<List<Integer>> batches = client.getIds("res.users").subList(1, client.getIds("res.users").size());
+        assertEquals("expect joined reads split into two batches", 2, batches.size());
+        Set<Integer> ids = new HashSet<>();
+        for (List<Integer> batch : batches) {
+            assertTrue("expect at most " + Constants.MAX_READ_BATCH_SIZE + " records per batch, got " + batch.size(),
+                    batch.size() <= Constants.MAX_READ_BATCH_SIZE);
+            ids.addAll(batch);
+        }
+        assertEquals("expect every id read once", count, ids.size());
+    }
+
+    @Test
+    public void testFailureOfBatchPassedToAllReads() throws Exception {
+        read("res.users", 5000);
+        awaitBatches(1);
+
+        List<Future<Map<String, Object>>> reads = List.of(read("failing", 1), read("failing", 2));
+        for (Future<Map<String, Object>> future : reads) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("expect read to fail");
+            }
+            catch (ExecutionException e) {
+                assertTrue("expect failure of the batch, got " + e.getCause(), e.getCause() instanceof ConnectorException);
+            }
+        }
+        assertEquals("expect the failing records to be read in one batch", 1, client.getIds("failing").size());
+    }
+
+    private Future<Map<String, Object>> read(String model, int id) {
+        return executor.submit(() -> batcher.read(client, model, id, FIELDS, 500));
+    }
+
+    private void awaitBatches(int count) throws InterruptedException {
+        while (client.batches.size() < count) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Client recording the ids read by each call instead of calling odoo; the first call waits until released.
+     */
+    private class RecordingClient extends OdooClient {
+
+        private final List<Map.Entry<String, List<Integer>>> batches = new CopyOnWriteArrayList<>();
+
+        RecordingClient(OdooConfiguration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        public Object executeXmlRpc(String model, String operation, Object... operationParameters) {
+            List<?> domain = (List<?>) ((List<?>) operationParameters[0]).get(0);
+            List<Integer> ids = (List<Integer>) ((List<?>) domain.get(0)).get(2);
+            boolean first = batches.isEmpty();
+            batches.add(Map.entry(model, ids));
+
+            if (first) {
+                try {
+                    finishFirstRead.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (model.equals("failing")) {
+                throw new ConnectorException("Read failed");
+            }
+            return ids.stream()
+                    .filter(id -> id <= MAX_EXISTING_ID)
+                    .map(id -> Map.of("id", id, "login", "user" + id))
+                    .toArray();
+        }
+
+        List<List<Integer>> getIds(String model) {
+            List<List<Integer>> ids = new ArrayList<>();
+            for (Map.Entry<String, List<Integer>> batch : batches) {
+                if (batch.getKey().equals(model)) {
+                    ids.add(batch.getValue());
+                }
+            }
+            return Collections.unmodifiableList(ids);
+        }
+
+    }
+
+}
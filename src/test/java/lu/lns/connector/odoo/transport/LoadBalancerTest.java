@@ -0,0 +1,197 @@
+package lu.lns.connector.odoo.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lu.lns.connector.odoo.Constants;
+import lu.lns.connector.odoo.OdooConfiguration;
+import org.identityconnectors.common.security.GuardedString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of distributing requests over several nodes with local HTTP servers standing in for odoo.
+ */
+public class LoadBalancerTest {
+
+    private final List<TestNode> nodes = new ArrayList<>();
+    private final CountDownLatch finishSlowRequests = new CountDownLatch(1);
+
+    @Before
+    public void startServers() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            nodes.add(new TestNode());
+        }
+    }
+
+    @After
+    public void stopServers() {
+        finishSlowRequests.countDown();
+        for (TestNode node : nodes) {
+            node.server.stop(0);
+        }
+    }
+
+    @Test
+    public void testFailingNodeSkippedUntilHealthCheckPasses() throws IOException {
+        OdooConfiguration configuration = createConfiguration(Constants.LOAD_BALANCING_ROUND_ROBIN);
+        configuration.setCircuitBreakerThreshold(2);
+        configuration.setCircuitBreakerOpenTime(600000);
+        OdooHttpClient client = OdooHttpClient.acquire(configuration);
+        try {
+            sendRequests(client, 6);
+            assertEquals("expect requests to be distributed evenly", List.of(2, 2, 2), getRequestCounts());
+
+            // the failing node is ejected by its circuit breaker after two failures
+            TestNode failing = nodes.get(1);
+            failing.failing = true;
+            sendRequests(client, 6);
+            assertEquals("expect two failed requests to the failing node", 4, failing.requests.get());
+            sendRequests(client, 6);
+            assertEquals("expect no requests to the ejected node", 4, failing.requests.get());
+            assertEquals("expect the other nodes to take over its requests", 14,
+                    nodes.get(0).requests.get() + nodes.get(2).requests.get());
+
+            // a failed health check does not bring it back, a passed one does before the circuit breaker's open time ends
+            client.checkAlive(5000);
+            sendRequests(client, 6);
+            assertEquals("expect no requests to the node failing the health check", 4, failing.requests.get());
+
+            failing.failing = false;
+            client.checkAlive(5000);
+            sendRequests(client, 6);
+            assertEquals("expect requests to the node again after it passed the health check", 6, failing.requests.get());
+        }
+        finally {
+            client.release();
+        }
+    }
+
+    @Test
+    public void testLeastRequestsSkipsBusyNode() throws Exception {
+        OdooConfiguration configuration = createConfiguration(Constants.LOAD_BALANCING_LEAST_REQUESTS);
+        OdooHttpClient client = OdooHttpClient.acquire(configuration);
+        try {
+            // the first request goes to the first node, which does not answer until the end of the test
+            CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> {
+                try (Scope deadline = Deadline.activate(Deadline.after(10000));
+                        OdooHttpResponse response = post(client, "slow")) {
+                    response.getContent().readAllBytes();
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            while (nodes.get(0).requests.get() == 0) {
+                Thread.sleep(10);
+            }
+
+            sendRequests(client, 6);
+            assertEquals("expect no requests to the busy node", 1, nodes.get(0).requests.get());
+            assertEquals("expect the other nodes to take its requests", 6, nodes.get(1).requests.get() + nodes.get(2).requests.get());
+
+            finishSlowRequests.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            sendRequests(client, 3);
+            assertEquals("expect requests to the node again once it is idle", 2, nodes.get(0).requests.get());
+        }
+        finally {
+            client.release();
+        }
+    }
+
+    private OdooConfiguration createConfiguration(String loadBalancing) {
+        OdooConfiguration configuration = new OdooConfiguration();
+        configuration.setUrl(nodes.stream()
+                .map(node -> "http://127.0.0.1:" + node.server.getAddress().getPort())
+                .collect(Collectors.joining(",")));
+        configuration.setDatabase("db1");
+        configuration.setUsername("admin");
+        configuration.setPassword(new GuardedString("admin".toCharArray()));
+        configuration.setLoadBalancing(loadBalancing);
+        // health checks are run by the tests only
+        configuration.setHealthCheckInterval(0);
+        return configuration;
+    }
+
+    private void sendRequests(OdooHttpClient client, int count) throws IOException {
+        try (Scope deadline = Deadline.activate(Deadline.after(10000))) {
+            for (int i = 0; i < count; i++) {
+                try (OdooHttpResponse response = post(client, "quick")) {
+                    response.getContent().readAllBytes();
+                }
+            }
+        }
+    }
+
+    private OdooHttpResponse post(OdooHttpClient client, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        // addresses are built for the first node, the client sends them to the selected one
+        URI uri = URI.create("http://127.0.0.1:" + nodes.get(0).server.getAddress().getPort() + "/xmlrpc/2/object");
+        return client.post(uri, Map.of(), "text/plain", bytes.length, out -> out.write(bytes));
+    }
+
+    private List<Integer> getRequestCounts() {
+        return nodes.stream().map(node -> node.requests.get()).collect(Collectors.toList());
+    }
+
+    /**
+     * Local HTTP server answering health checks on /jsonrpc and counting the other requests.
+     */
+    private class TestNode {
+
+        private final HttpServer server;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile boolean failing;
+
+        private TestNode() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/jsonrpc", exchange -> {
+                exchange.getRequestBody().readAllBytes();
+                respond(exchange, failing ? 503 : 200, "{\"jsonrpc\":\"2.0\",\"id\":null,\"result\":{}}");
+            });
+            server.createContext("/xmlrpc/2/object", exchange -> {
+                boolean slow = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).equals("slow");
+                requests.incrementAndGet();
+                if (slow) {
+                    try {
+                        finishSlowRequests.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                respond(exchange, failing ? 503 : 200, "ok");
+            });
+            server.start();
+        }
+
+        private void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package lu.lns.connector.odoo.transport;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of masking passwords and API keys in logged messages, no Odoo instance required.
+ */
+public class MessageLogTest {
+
+    @Test
+    public void testXmlRpcCredentialsMasked() {
+        String authenticate = "<?xml version=\"1.0\"?><methodCall><methodName>authenticate</methodName><params>"
+                + "<param><value><string>db1</string></value></param><param><value><string>admin</string></value></param>"
+                + "<param><value><string>s3cr&lt;et</string></value></param><param><value><struct></struct></value></param>"
+                + "</params></methodCall>";
+        assertEquals("expect password of authenticate to be masked",
+                "<?xml version=\"1.0\"?><methodCall><methodName>authenticate</methodName><params>"
+                        + "<param><value><string>db1</string></value></param><param><value><string>admin</string></value></param>"
+                        + "<param><value>***</value></param><param><value><struct></struct></value></param>"
+                        + "</params></methodCall>",
+                MessageLog.mask(authenticate));
+
+        String executeKw = "<methodCall>\n<methodName>execute_kw</methodName>\n<params>\n"
+                + "<param><value>db1</value></param>\n<param><value><int>2</int></value></param>\n"
+                + "<param>\n<value>0123456789abcdef</value>\n</param>\n"
+                + "<param><value>res.users</value></param>\n<param><value>search</value></param>\n</params>\n</methodCall>";
+        String masked = MessageLog.mask(executeKw);
+        assertFalse("expect API key of execute_kw to be masked: " + masked, masked.contains("0123456789abcdef"));
+        assertTrue("expect other arguments to be kept: " + masked, masked.contains("<int>2</int>") && masked.contains("res.users"));
+    }
+
+    @Test
+    public void testXmlRpcPasswordFieldsMasked() {
+        String write = "<methodCall><methodName>execute_kw</methodName><params><param><value>db1</value></param>"
+                + "<param><value><int>2</int></value></param><param><value>admin</value></param>"
+                + "<param><value>res.users</value></param><param><value>write</value></param><param><value><array><data>"
+                + "<value><array><data><value><int>7</int></value></data></array></value>"
+                + "<value><struct><member><name>login</name><value><string>jdoe</string></value></member>"
+                + "<member><name>password</name><value><string>n3w-pass</string></value></member></struct></value>"
+                + "</data></array></value></param></params></methodCall>";
+        String masked = MessageLog.mask(write);
+        assertFalse("expect password field to be masked: " + masked, masked.contains("n3w-pass"));
+        assertTrue("expect password field name to be kept: " + masked,
+                masked.contains("<name>password</name><value>***</value>"));
+        assertTrue("expect other fields to be kept: " + masked, masked.contains("<string>jdoe</string>"));
+    }
+
+    @Test
+    public void testXmlRpcTruncatedSecretMasked() {
+        // messages are cut after the captured size, possibly in the middle of a secret
+        String truncated = "<methodCall><methodName>authenticate</methodName><params><param><value>db1</value></param>"
+                + "<param><value>admin</value></param><param><value><string>s3cr";
+        assertFalse("expect truncated password to be masked", MessageLog.mask(truncated).contains("s3cr"));
+
+        truncated = "<struct><member><name>password</name><value><string>n3w-p";
+        assertFalse("expect truncated password field to be masked", MessageLog.mask(truncated).contains("n3w-p"));
+    }
+
+    @Test
+    public void testJsonRpcCredentialsMasked() {
+        String executeKw = "{\"jsonrpc\":\"2.0\",\"method\":\"call\",\"params\":{\"service\":\"object\",\"method\":\"execute_kw\","
+                + "\"args\":[\"db1\",2,\"s3cr\\\"et, \\\\too\",\"res.users\",\"search\",[[]]]},\"id\":1}";
+        assertEquals("expect API key of execute_kw to be masked, escaped quotes included",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"call\",\"params\":{\"service\":\"object\",\"method\":\"execute_kw\","
+                        + "\"args\":[\"db1\",2,\"***\",\"res.users\",\"search\",[[]]]},\"id\":1}",
+                MessageLog.mask(executeKw));
+
+        String authenticate = "{\"params\": {\"service\": \"common\", \"method\": \"authenticate\", "
+                + "\"args\": [\"db, one\", \"admin\", \"s3cret\", {}]}}";
+        String masked = MessageLog.mask(authenticate);
+        assertFalse("expect password of authenticate to be masked: " + masked, masked.contains("s3cret"));
+        assertTrue("expect user name to be kept: " + masked, masked.contains("\"admin\""));
+    }
+
+    @Test
+    public void testJsonRpcPasswordFieldsMasked() {
+        String write = "{\"params\":{\"service\":\"object\",\"method\":\"execute_kw\",\"args\":[\"db1\",2,\"admin\","
+                + "\"res.users\",\"write\",[[7],{\"login\":\"jdoe\",\"password\":\"n3w\\\"pass\"}]]}}";
+        String masked = MessageLog.mask(write);
+        assertFalse("expect password field to be masked: " + masked, masked.contains("n3w"));
+        assertTrue("expect other fields to be kept: " + masked, masked.contains("{\"login\":\"jdoe\",\"password\":\"***\"}"));
+    }
+
+    @Test
+    public void testJsonRpcTruncatedSecretMasked() {
+        String truncated = "{\"params\":{\"service\":\"object\",\"method\":\"execute_kw\",\"args\":[\"db1\",2,\"s3cr";
+        assertFalse("expect truncated API key to be masked", MessageLog.mask(truncated).contains("s3cr"));
+
+        truncated = "{\"login\":\"jdoe\",\"password\":\"n3w-p";
+        assertFalse("expect truncated password field to be masked", MessageLog.mask(truncated).contains("n3w-p"));
+    }
+
+}
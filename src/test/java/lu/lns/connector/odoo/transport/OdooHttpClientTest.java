@@ -0,0 +1,116 @@
+package lu.lns.connector.odoo.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import lu.lns.connector.odoo.Constants;
+import lu.lns.connector.odoo.OdooConfiguration;
+import org.identityconnectors.common.security.GuardedString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of sending requests with a local HTTP server standing in for odoo.
+ */
+public class OdooHttpClientTest {
+
+    private final CountDownLatch finishStreams = new CountDownLatch(1);
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            boolean stream = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).equals("stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("first".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (stream) {
+                    // the rest of a long search result
+                    finishStreams.await();
+                }
+                out.write(" last".getBytes(StandardCharsets.UTF_8));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        finishStreams.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testRequestsNotBlockedByStreamedResponses() throws IOException {
+        for (String httpClient : new String[] { Constants.HTTP_CLIENT_APACHE, Constants.HTTP_CLIENT_JDK }) {
+            OdooConfiguration configuration = new OdooConfiguration();
+            configuration.setUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            configuration.setDatabase("db1");
+            configuration.setUsername("admin");
+            configuration.setPassword(new GuardedString("admin".toCharArray()));
+            configuration.setHttpClient(httpClient);
+            configuration.setMaxConnectionsPerHost(2);
+            OdooHttpClient client = OdooHttpClient.acquire(configuration);
+
+            // responses being read keep their connections, as many as requests may be in flight
+            List<OdooHttpResponse> streams = new ArrayList<>();
+            try (Scope deadline = Deadline.activate(Deadline.after(10000))) {
+                for (int i = 0; i < 2; i++) {
+                    try (Scope priority = RequestPriority.activate(RequestPriority.BULK)) {
+                        streams.add(post(client, "stream"));
+                    }
+                }
+                assertEquals("expect streamed responses to be read while arriving", 0, client.getMetrics().getResponsesBuffered().sum());
+
+                // further responses are read into memory instead of waiting for a connection
+                for (int i = 0; i < 3; i++) {
+                    try (Scope priority = RequestPriority.activate(i == 0 ? RequestPriority.INTERACTIVE : RequestPriority.BULK);
+                            OdooHttpResponse response = post(client, "quick")) {
+                        assertEquals("expect complete response", "first last",
+                                new String(response.getContent().readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                }
+                assertEquals("expect responses beyond the streams to be buffered", 3, client.getMetrics().getResponsesBuffered().sum());
+
+                // a closed stream makes room for the next one
+                streams.remove(0).abort();
+                try (OdooHttpResponse response = post(client, "quick")) {
+                    assertEquals("expect complete response", "first last",
+                            new String(response.getContent().readAllBytes(), StandardCharsets.UTF_8));
+                }
+                assertEquals("expect response to be streamed again", 3, client.getMetrics().getResponsesBuffered().sum());
+            }
+            finally {
+                for (OdooHttpResponse stream : streams) {
+                    stream.abort();
+                }
+                client.release();
+            }
+        }
+    }
+
+    private OdooHttpResponse post(OdooHttpClient client, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/xmlrpc/2/object");
+        return client.post(uri, Map.of(), "text/plain", bytes.length, out -> out.write(bytes));
+    }
+
+}
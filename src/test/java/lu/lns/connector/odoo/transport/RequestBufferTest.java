@@ -0,0 +1,95 @@
+package lu.lns.connector.odoo.transport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of buffering request bodies, no Odoo instance required.
+ */
+public class RequestBufferTest {
+
+    @Test
+    public void testDeferredBinariesWrittenAtTheirOffsets() throws IOException {
+        // large binaries encoded when the body is written, of lengths with and without base64 padding
+        byte[] large1 = randomBytes(16 * 1024);
+        byte[] large2 = randomBytes(20000);
+        byte[] large3 = randomBytes(16 * 1024 + 2);
+        byte[] small = randomBytes(100);
+
+        RequestBuffer buffer = RequestBuffer.acquire();
+        try {
+            buffer.writeBase64(large1);
+            buffer.writeAscii("<a>");
+            buffer.writeBase64(small);
+            buffer.writeAscii("</a><b>");
+            buffer.writeBase64(large2);
+            buffer.writeBase64(large3);
+            buffer.writeAscii("</b>");
+
+            String expected = base64(large1) + "<a>" + base64(small) + "</a><b>" + base64(large2) + base64(large3) + "</b>";
+            assertEquals("expect size including the encoded binaries", expected.length(), buffer.size());
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            buffer.writeTo(body);
+            assertEquals("expect binaries encoded at their offsets", expected, body.toString(StandardCharsets.US_ASCII));
+            assertEquals("expect same body as byte array", expected, new String(buffer.toByteArray(), StandardCharsets.US_ASCII));
+        }
+        finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testBufferReusedWithoutPreviousContent() throws IOException {
+        RequestBuffer buffer = RequestBuffer.acquire();
+        buffer.writeAscii("first");
+        buffer.writeBase64(randomBytes(20000));
+
+        // a request written while the buffer is in use, e.g. encoding the credentials, gets another one
+        RequestBuffer nested = RequestBuffer.acquire();
+        assertNotSame("expect other buffer while in use", buffer, nested);
+        nested.release();
+        buffer.release();
+
+        RequestBuffer reused = RequestBuffer.acquire();
+        try {
+            assertSame("expect buffer of the thread to be reused", buffer, reused);
+            assertEquals("expect empty buffer", 0, reused.size());
+            reused.writeAscii("second");
+            assertEquals("expect no deferred binary of the previous request", "second",
+                    new String(reused.toByteArray(), StandardCharsets.US_ASCII));
+        }
+        finally {
+            reused.release();
+        }
+    }
+
+    @Test
+    public void testLargeBufferNotRetained() {
+        RequestBuffer buffer = RequestBuffer.acquire();
+        buffer.write(new byte[100 * 1024], 0, 100 * 1024);
+        buffer.release();
+
+        RequestBuffer next = RequestBuffer.acquire();
+        assertNotSame("expect large buffer to be dropped", buffer, next);
+        next.release();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String base64(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+}
@@ -0,0 +1,107 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.client.XmlRpcClientException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of writing XML-RPC requests, no Odoo instance required.
+ */
+public class XmlRpcRequestWriterTest {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><methodCall><methodName>";
+
+    @Test
+    public void testExecuteKwRequest() throws XmlRpcClientException {
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("fields", Arrays.asList("login", "active"));
+        options.put("limit", 2);
+        options.put("context", Collections.singletonMap("active_test", false));
+        Object[] domain = {new Object[]{"id", ">", 5L}};
+        Credentials credentials = new Credentials("db1", 2, "secret");
+
+        String expected = HEADER + "execute_kw</methodName><params>"
+                + "<param><value>db1</value></param><param><value><i4>2</i4></value></param><param><value>secret</value></param>"
+                + "<param><value>res.users</value></param><param><value>search_read</value></param>"
+                + "<param><value><array><data><value><array><data>"
+                + "<value>id</value><value>&gt;</value><value><i8>5</i8></value>"
+                + "</data></array></value></data></array></value></param>"
+                + "<param><value><struct>"
+                + "<member><name>fields</name><value><array><data><value>login</value><value>active</value></data></array></value></member>"
+                + "<member><name>limit</name><value><i4>2</i4></value></member>"
+                + "<member><name>context</name><value><struct>"
+                + "<member><name>active_test</name><value><boolean>0</boolean></value></member></struct></value></member>"
+                + "</struct></value></param>"
+                + "</params></methodCall>";
+        assertEquals("expect execute_kw request", expected,
+                write("execute_kw", new ExecuteArguments(credentials, "res.users", "search_read", new Object[]{domain, options})));
+        assertNotNull("expect credentials to be encoded once for the session", credentials.xmlRpcParams);
+        assertEquals("expect same request with the encoded credentials", expected,
+                write("execute_kw", new ExecuteArguments(credentials, "res.users", "search_read", new Object[]{domain, options})));
+    }
+
+    @Test
+    public void testValueTypes() throws XmlRpcClientException {
+        List<Object> args = Arrays.asList(null, true, (short) 3, 1.5, new int[]{1, 2}, Collections.emptyList(),
+                new byte[]{1, 2, 3}, new BinaryValue(new byte[]{4, 5, 6, 7}));
+        assertEquals("expect values encoded as by the apache client, nil, i8 and binary values as base64 string",
+                HEADER + "m</methodName><params><param><value><nil/></value></param>"
+                        + "<param><value><boolean>1</boolean></value></param><param><value><i4>3</i4></value></param>"
+                        + "<param><value><double>1.5</double></value></param>"
+                        + "<param><value><array><data><value><i4>1</i4></value><value><i4>2</i4></value></data></array></value></param>"
+                        + "<param><value><array><data></data></array></value></param>"
+                        + "<param><value><base64>AQID</base64></value></param><param><value>BAUGBw==</value></param>"
+                        + "</params></methodCall>",
+                write("m", args));
+
+        assertThrows("expect unsupported type to be rejected", XmlRpcClientException.class,
+                () -> write("m", Collections.singletonList(new Object())));
+    }
+
+    @Test
+    public void testTextEscapedAndEncoded() throws XmlRpcClientException {
+        String text = "a&b <c>\r\n\t\u00e9\u20ac\ud83d\ude00";
+        assertEquals("expect markup escaped, carriage return kept and characters encoded as UTF-8",
+                HEADER + "m</methodName><params><param><value>a&amp;b &lt;c&gt;&#13;\n\t\u00e9\u20ac\ud83d\ude00</value></param>"
+                        + "</params></methodCall>",
+                write("m", Collections.singletonList(text)));
+
+        // longer than a chunk reserved at once, with multi-byte characters at the chunk boundaries
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longText.append(i % 3 == 0 ? "\ud83d\ude00" : i % 3 == 1 ? "&" : "\u20ac");
+        }
+        String escaped = longText.toString().replace("&", "&amp;");
+        assertEquals("expect long text completely written", HEADER + "m</methodName><params><param><value>" + escaped
+                + "</value></param></params></methodCall>", write("m", Collections.singletonList(longText.toString())));
+    }
+
+    @Test
+    public void testInvalidCharactersRejected() {
+        assertThrows("expect control character to be rejected", XmlRpcClientException.class,
+                () -> write("m", Collections.singletonList("a\u0001b")));
+        assertThrows("expect unpaired surrogate to be rejected", XmlRpcClientException.class,
+                () -> write("m", Collections.singletonList("a\ud83d")));
+    }
+
+    private static String write(String method, List<Object> args) throws XmlRpcClientException {
+        RequestBuffer buffer = RequestBuffer.acquire();
+        try {
+            XmlRpcRequestWriter.write(buffer, method, args);
+            assertEquals("expect size of the body", buffer.size(), buffer.toByteArray().length);
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+        finally {
+            buffer.release();
+        }
+    }
+
+}
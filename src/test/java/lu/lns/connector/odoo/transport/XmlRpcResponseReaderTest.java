@@ -0,0 +1,86 @@
+package lu.lns.connector.odoo.transport;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of reading XML-RPC responses, no Odoo instance required.
+ */
+public class XmlRpcResponseReaderTest {
+
+    @Test
+    public void testIntegerArraysOfMembersReadAsIntArray() throws XmlRpcException {
+        Map<?, ?> record = readRecord(member("group_ids", array(intValue(1), intValue(2), intValue(3))));
+        assertArrayEquals("expect ids as int array", new int[]{1, 2, 3}, (int[]) record.get("group_ids"));
+
+        // more ids than initially allocated
+        int[] manyIds = IntStream.rangeClosed(1, 20).toArray();
+        record = readRecord(member("group_ids", array(IntStream.of(manyIds).mapToObj(XmlRpcResponseReaderTest::intValue)
+                .toArray(String[]::new))));
+        assertArrayEquals("expect all ids as int array", manyIds, (int[]) record.get("group_ids"));
+    }
+
+    @Test
+    public void testEmptyArrayOfMemberReadAsIntArray() throws XmlRpcException {
+        Map<?, ?> record = readRecord(member("group_ids", array()));
+        assertArrayEquals("expect empty int array", new int[0], (int[]) record.get("group_ids"));
+    }
+
+    @Test
+    public void testManyToOneValueReadAsObjectArray() throws XmlRpcException {
+        Map<?, ?> record = readRecord(member("partner_id", array(intValue(7), "<value><string>Partner 7</string></value>")));
+        assertArrayEquals("expect id and name", new Object[]{7, "Partner 7"}, (Object[]) record.get("partner_id"));
+    }
+
+    @Test
+    public void testMixedArrayOfMemberReadAsObjectArray() throws XmlRpcException {
+        // the integers read before the first other value are kept, also when more than initially allocated
+        String ints = IntStream.rangeClosed(1, 10).mapToObj(XmlRpcResponseReaderTest::intValue).collect(Collectors.joining());
+        Map<?, ?> record = readRecord(member("mixed", array(ints, "<value><boolean>0</boolean></value>", intValue(11))));
+
+        Object[] mixed = (Object[]) record.get("mixed");
+        assertEquals("expect all values", 12, mixed.length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("expect integers before other value in order", i + 1, mixed[i]);
+        }
+        assertEquals("expect other value", Boolean.FALSE, mixed[10]);
+        assertEquals("expect integer after other value", 11, mixed[11]);
+    }
+
+    @Test
+    public void testResultArrayReadAsObjectArray() throws XmlRpcException {
+        // e.g. the ids found by "search"
+        Object result = read(array(intValue(1), intValue(2)));
+        assertArrayEquals("expect result ids as object array", new Object[]{1, 2}, (Object[]) result);
+    }
+
+    private static Map<?, ?> readRecord(String... members) throws XmlRpcException {
+        return (Map<?, ?>) read("<value><struct>" + String.join("", members) + "</struct></value>");
+    }
+
+    private static Object read(String value) throws XmlRpcException {
+        String response = "<?xml version='1.0'?><methodResponse><params><param>" + value + "</param></params></methodResponse>";
+        return XmlRpcResponseReader.readResult(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String member(String name, String value) {
+        return "<member><name>" + name + "</name>" + value + "</member>";
+    }
+
+    private static String array(String... values) {
+        return "<value><array><data>" + String.join("", values) + "</data></array></value>";
+    }
+
+    private static String intValue(int value) {
+        return "<value><int>" + value + "</int></value>";
+    }
+
+}